@@ -1,5 +1,6 @@
 package Controller;
 
+import Model.Photo;
 import javafx.event.EventHandler;
 import javafx.scene.image.Image;
 import javafx.scene.input.DragEvent;
@@ -54,7 +55,8 @@ public class DragDropController extends MainController implements EventHandler<D
      * @param event: a event object comes from the GUI
      */
     private void dragOverEventHandler(DragEvent event) {
-        if (event.getDragboard().hasFiles()) {
+        // photos are not imported until the catalog is loaded
+        if (event.getDragboard().hasFiles() && !mainView.isLoading()) {
             event.acceptTransferModes(TransferMode.ANY);
         }
     }
@@ -70,14 +72,18 @@ public class DragDropController extends MainController implements EventHandler<D
             File imgFile = dropeddFiles.get(0);
             // set the image view
             if (fileController.isImageFile(imgFile)) {
-                // set the photo as a active photo that is displayed in the application
-                fileController.loadImages(dropeddFiles, mainView.getImgInDirectory().getItems(), false);
-                mainView.setCurrentActivePhoto(database.getPhoto(imgFile.getPath()));
-                Image img = new Image(imgFile.toURI().toString());
-                mainView.displaySelectedImage(img);
+                // set the photo as a active photo that is displayed in the application once it is imported
+                fileController.loadImages(dropeddFiles, mainView.getImgInDirectory().getItems(), false, () -> {
+                    Photo photo = database.getPhoto(imgFile.getPath());
+                    if (photo == null)
+                        return;
+                    mainView.setCurrentActivePhoto(photo);
+                    Image img = new Image(imgFile.toURI().toString());
+                    mainView.displaySelectedImage(img);
 
-                viewAgent.updateCurrentPhotoPath();
-                viewAgent.refreshOldTagListView();
+                    viewAgent.updateCurrentPhotoPath();
+                    viewAgent.refreshOldTagListView();
+                });
             }
         }
     }
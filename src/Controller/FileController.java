@@ -1,7 +1,11 @@
 package Controller;
 
+import Model.DataLogger;
+import Model.DirectoryScanner;
+import Model.FolderWatcher;
 import Model.Photo;
-import Model.Tag;
+import View.RenameHistoryWindow;
+import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
@@ -10,9 +14,11 @@ import javafx.stage.DirectoryChooser;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * a controller that control all the file related events happened in the GUI
@@ -29,6 +35,16 @@ public class FileController extends MainController implements EventHandler<Actio
      */
     private static FileController fileController = new FileController();
 
+    /**
+     * the singleton scanner that finds the image files in the imported folders
+     */
+    private DirectoryScanner scanner = DirectoryScanner.getDirectoryScanner();
+
+    /**
+     * the import that is running, null if there is none
+     */
+    private PhotoImport currentImport;
+
     /**
      * get the singleton fileController object
      *
@@ -58,13 +74,17 @@ public class FileController extends MainController implements EventHandler<Actio
         } else if (mainView.getMoveDirectory() == source) {
             moveFileEventHandler(photo);
         } else if (mainView.getLog() == source) {
-            logEventHandler();
+            logEventHandler(photo);
+        } else if (mainView.getCancelImport() == source && currentImport != null) {
+            currentImport.cancel();
         }
     }
 
 
     /**
      * load all the image objects into database and display all image's name onto the list views in GUI
+     * the folder is watched afterwards, so the files that are added, deleted or renamed outside the
+     * application are synced without importing the folder again, a cancelled import is not watched
      *
      * @param allFiles the root file
      */
@@ -72,75 +92,45 @@ public class FileController extends MainController implements EventHandler<Actio
         if (allFiles != null) { // make sure the user select the folder
             List<File> files = Arrays.asList(allFiles.listFiles());
             // start to load all the images and display to the listView
-            loadImages(files, mainView.getImgInDirectory().getItems(), true);
+            loadImages(files, mainView.getImgInDirectory().getItems(), true, () -> {
+                try {
+                    FolderWatcher.getFolderWatcher().watch(allFiles.toPath());
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
         }
     }
 
     /**
      * get all the image files EVERYWHERE in the directory if recursive is true
      * get all the image files UNDER the directory if recursive is false
+     * The files are imported in the background and the photos are added to the list view in batches,
+     * only one import runs at a time
      *
-     * @param allFiles  a list of all file objects under the root directory
-     * @param photos    a observable list of photos
-     * @param recursive if this function need to be recursively called
-     */
-    void loadImages(List<File> allFiles, ObservableList<Photo> photos, boolean recursive) {
-        for (File file : allFiles) {
-            if (file.isFile() && isImageFile(file)) {
-                Photo photo = getPhoto(file);
-                if (!photos.contains(photo)) {
-                    photos.add(photo);
-                }
-            } else if (file.isDirectory() && recursive) {
-                // recursively call the directory
-                loadImages(Arrays.asList(file.listFiles()), photos, true);
-            }
-        }
-    }
-
-    /**
-     * get the photo from the database if it exists otherwise return a new photo object
-     *
-     * @param imgFile the image file in the selected directory
-     * @return the photo object either from the database or newly created
+     * @param allFiles   a list of all file objects under the root directory
+     * @param photos     a observable list of photos
+     * @param recursive  if this function need to be recursively called
+     * @param onFinished runs on the JavaFX thread after the import is finished, not when it is cancelled
      */
-    private Photo getPhoto(File imgFile) {
-        Photo photo;
-        String path = imgFile.getPath();
-        if (database.hasPhoto(path)) { // get the image from the database
-            photo = database.getPhoto(path);  // get the same object
-        } else {  // add a new image
-            List<Tag> tagSet = extractTagSetsFromPhoto(imgFile);
-            photo = new Photo(path, tagSet);
-            database.addPhoto(photo);
-            dbManager.addTags(photo, tagSet);  // add the tags to the photo and the database if unique
+    void loadImages(List<File> allFiles, ObservableList<Photo> photos, boolean recursive, Runnable onFinished) {
+        if (currentImport != null) {
+            viewAgent.updateStatusMessage("Wait for the running import to finish or cancel it");
+            return;
         }
-        return photo;
-    }
-
-    /**
-     * extract a list of tags for a particular img file
-     *
-     * @param imgFile the image file that need to extract
-     * @return a list of tags that belong to the this image file
-     */
-    private List<Tag> extractTagSetsFromPhoto(File imgFile) {
-        String name = imgFile.getName();
-        List<Tag> tagSet = new ArrayList<>();
-        int firstTagIndex = name.indexOf("@");
-        if (firstTagIndex >= 0) {
-            String[] tags = name.substring(firstTagIndex, name.lastIndexOf(".")).split(" ");
-            for (String tagName : tags) {
-                if (database.containTag(tagName))
-                    tagSet.add(database.getTag(tagName));
-                else
-                    tagSet.add(new Tag(tagName));
-            }
+        List<Path> paths = new ArrayList<>();
+        for (File file : allFiles) {
+            paths.add(file.toPath());
         }
-        return tagSet;
+        currentImport = new PhotoImport(paths, recursive, photos, () -> {
+            boolean cancelled = currentImport.isCancelled();
+            currentImport = null;
+            if (!cancelled)
+                onFinished.run();
+        });
+        currentImport.start();
     }
 
-
     /**
      * Assume the image is in the database
      * move the current active image file to a new directory that is selected by user
@@ -153,17 +143,13 @@ public class FileController extends MainController implements EventHandler<Actio
 
             if (newFolder != null && !hasSameFile(newFolder, new File(photo.getDirectory()))) {
                 String newPhotoPath = newFolder.getPath() + File.separator + photo.getNameWithExtension();
-                photo.setDirectory(newPhotoPath); // update the image model information
-                // update the list view directory
-                viewAgent.refreshPhotoListViewByTag();
-                viewAgent.refreshPhotoListViews();
+                // update the image model information, the database tells the view agent to update the list views
+                photo.setDirectory(newPhotoPath);
                 try {
                     openDir(photo.getFolderDirectory());
                 } catch (IOException e) {
                     return;
                 }
-                // automatically update the absolute path of the current photo
-                viewAgent.updateCurrentPhotoPath();
             } else {
                 viewAgent.updateStatusMessage("Name conflicts in the folder you chose");
             }
@@ -209,9 +195,32 @@ public class FileController extends MainController implements EventHandler<Actio
     }
 
     /**
-     * open the log file for user to see if the corresponding button is clicked
+     * show the rename history of the selected photo, or open the log file of every rename if no photo is selected
+     *
+     * @param activePhoto the photo that is currently displayed
      */
-    private void logEventHandler() {
+    private void logEventHandler(Photo activePhoto) {
+        // the history is written in the background, so the renames that are still waiting are written first
+        // and the window is opened on the JavaFX thread once they are
+        viewAgent.updateStatusMessage("Writing the rename log...");
+        DataLogger.getDataLogger().flushAsync().orTimeout(10, TimeUnit.SECONDS).whenComplete((done, e) ->
+                Platform.runLater(() -> {
+                    if (e != null) {
+                        viewAgent.updateStatusMessage("The rename log is still being written, try again later");
+                    } else if (activePhoto != null) {
+                        super.resetStatusMessage();
+                        RenameHistoryWindow.show(activePhoto);
+                    } else {
+                        super.resetStatusMessage();
+                        openLogFile();
+                    }
+                }));
+    }
+
+    /**
+     * open the log file of every rename
+     */
+    private void openLogFile() {
         try {
             openDir("nameLog.txt");
         } catch (IOException e) {
@@ -245,12 +254,6 @@ public class FileController extends MainController implements EventHandler<Actio
      * @return if this is a photo file
      */
     boolean isImageFile(File file) {
-        String[] extensions = database.getAcceptableImageExtensions();
-        for (String extension : extensions) {
-            if (file.getName().toLowerCase().endsWith(extension)) {
-                return true;
-            }
-        }
-        return false;
+        return scanner.isImageFile(file.getName());
     }
 }
@@ -0,0 +1,295 @@
+package Controller;
+
+import Model.Database;
+import Model.DatabaseManager;
+import Model.DirectoryCache;
+import Model.DirectoryScanner;
+import Model.Photo;
+import Model.Tag;
+import View.View;
+import View.ViewAgent;
+import javafx.animation.AnimationTimer;
+import javafx.collections.ObservableList;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * an import of photos that runs in the background
+ * The folders are scanned on background threads and the tag names of each image file are parsed as soon as its
+ * folder is read, so the first photos show up while the rest of the folders are still scanned. The parsed
+ * photos are registered in the database and added to the list view on the JavaFX thread, at most
+ * PUBLISH_BATCH_SIZE of them once per pulse, so the GUI keeps responding during a large import.
+ * The progress bar, the status message and the cancel button show the import while it runs
+ *
+ * @author Jianzhong You, Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+class PhotoImport {
+
+    /**
+     * the largest number of photos that are registered in one pulse of the JavaFX thread
+     */
+    private static final int PUBLISH_BATCH_SIZE = 1000;
+
+    /**
+     * the files and folders to import
+     */
+    private final List<Path> paths;
+    /**
+     * if the folders are searched
+     */
+    private final boolean recursive;
+    /**
+     * the list view items that the new photos are added to
+     */
+    private final ObservableList<Photo> photos;
+    /**
+     * runs on the JavaFX thread after the last photo is registered, or after the scan stopped when the import is
+     * cancelled
+     */
+    private final Runnable onFinished;
+    /**
+     * the photos that are parsed and not registered yet
+     */
+    private final Queue<ParsedPhoto> parsed = new ConcurrentLinkedQueue<>();
+    /**
+     * the photos that are already in the list view, only used on the JavaFX thread
+     */
+    private final Set<Photo> shownPhotos;
+    /**
+     * registers the parsed photos once per pulse
+     */
+    private final AnimationTimer publisher;
+
+    /**
+     * the number of image files that are found and parsed so far
+     */
+    private final AtomicInteger scanned = new AtomicInteger();
+    /**
+     * if every folder is scanned and every image file found is parsed
+     */
+    private volatile boolean scanDone;
+    /**
+     * if the import is cancelled
+     */
+    private volatile boolean cancelled;
+    /**
+     * the number of registered photos, only used on the JavaFX thread
+     */
+    private int registered;
+    /**
+     * the time the import started in nanoseconds
+     */
+    private long startTime;
+
+    /**
+     * the singleton objects of the application
+     */
+    private final Database database = Database.getDatabase();
+    private final DatabaseManager dbManager = DatabaseManager.getDbManager();
+    private final View mainView = View.getView();
+    private final ViewAgent viewAgent = ViewAgent.getViewAgent();
+
+    /**
+     * create an import, it is started with start
+     *
+     * @param paths      the files and folders to import
+     * @param recursive  if the folders are searched
+     * @param photos     the list view items that the new photos are added to
+     * @param onFinished runs on the JavaFX thread after the import is finished or cancelled, see isCancelled
+     */
+    PhotoImport(List<Path> paths, boolean recursive, ObservableList<Photo> photos, Runnable onFinished) {
+        this.paths = paths;
+        this.recursive = recursive;
+        this.photos = photos;
+        this.onFinished = onFinished;
+        this.shownPhotos = new HashSet<>(photos);
+        this.publisher = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                publish();
+            }
+        };
+    }
+
+    /**
+     * show the progress and start the background thread and the publisher, this is called on the JavaFX thread
+     */
+    void start() {
+        startTime = System.nanoTime();
+        mainView.setImporting(true);
+        mainView.getLoadingProgress().setProgress(-1);
+        viewAgent.updateStatusMessage("Scanning folders...");
+        Thread thread = new Thread(this::scanAndParse, "photo import");
+        thread.setDaemon(true);
+        thread.start();
+        publisher.start();
+    }
+
+    /**
+     * stop the import, the photos that are already registered stay in the database
+     * the import is finished once the scanner has stopped
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * check if the import is cancelled
+     *
+     * @return if the import is cancelled
+     */
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * scan the folders for image files and parse each one as it is found, this runs in the background
+     */
+    private void scanAndParse() {
+        try {
+            DirectoryScanner.getDirectoryScanner().scan(paths, recursive, () -> cancelled, this::parse);
+            saveDirectoryCache();
+        } finally {
+            scanDone = true;
+        }
+    }
+
+    /**
+     * parse the tag names from the file name of an image file that was just found
+     * this runs on the threads of the scanner, several image files can be parsed at the same time
+     *
+     * @param image the image file
+     */
+    private void parse(Path image) {
+        if (cancelled)
+            return;
+        String path = image.toString();
+        // a photo that is already in the database is not parsed again
+        List<String> tagNames = database.hasPhoto(path)
+                ? Collections.emptyList() : Photo.parseTagNames(image.getFileName().toString());
+        parsed.add(new ParsedPhoto(path, tagNames));
+        scanned.incrementAndGet();
+    }
+
+    /**
+     * save the fingerprints of the scanned folders, so the next import of the same folders only reads the
+     * folders that changed
+     */
+    private void saveDirectoryCache() {
+        try {
+            DirectoryCache.getDirectoryCache().save();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * register the next batch of parsed photos and update the progress, this runs once per pulse
+     */
+    private void publish() {
+        List<Photo> newPhotos = new ArrayList<>();
+        if (!cancelled && !parsed.isEmpty()) {
+            // the batch of photos and tags are added at once, so the views are refreshed once per pulse
+            dbManager.beginBatch();
+            try {
+                ParsedPhoto next;
+                for (int i = 0; i < PUBLISH_BATCH_SIZE && (next = parsed.poll()) != null; i++) {
+                    Photo photo = register(next);
+                    registered++;
+                    if (shownPhotos.add(photo))
+                        newPhotos.add(photo);
+                }
+            } finally {
+                dbManager.commitBatch();
+            }
+            photos.addAll(newPhotos);
+        }
+
+        if (scanDone && (cancelled || parsed.isEmpty())) {
+            // a cancelled import is only finished once the scanner stopped, so no other import runs beside it
+            finish();
+        } else if (cancelled) {
+            viewAgent.updateStatusMessage("Cancelling the import...");
+        } else if (scanDone) {
+            int found = scanned.get();
+            double seconds = Math.max(1e-3, (System.nanoTime() - startTime) / 1e9);
+            mainView.getLoadingProgress().setProgress(found == 0 ? 1 : (double) registered / found);
+            viewAgent.updateStatusMessage(String.format("Imported %d of %d photos (%.0f photos/s)",
+                    registered, found, registered / seconds));
+        } else {
+            // the number of image files is not known until the scan is done
+            viewAgent.updateStatusMessage(String.format("Scanning folders... imported %d of %d photos found so far",
+                    registered, scanned.get()));
+        }
+    }
+
+    /**
+     * stop the publisher, hide the progress and tell the caller that the import is finished
+     */
+    private void finish() {
+        publisher.stop();
+        parsed.clear();
+        mainView.setImporting(false);
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        viewAgent.updateStatusMessage(String.format("%s %d photos in %.1f s",
+                cancelled ? "Import cancelled after" : "Imported", registered, seconds));
+        onFinished.run();
+    }
+
+    /**
+     * get the photo of a parsed file from the database, or add a new photo with the parsed tags
+     *
+     * @param parsedPhoto the parsed file
+     * @return the photo object either from the database or newly created
+     */
+    private Photo register(ParsedPhoto parsedPhoto) {
+        Photo photo = database.getPhoto(parsedPhoto.path);  // get the same object from the database
+        if (photo == null) {  // add a new image
+            List<Tag> tagSet = new ArrayList<>();
+            for (String tagName : parsedPhoto.tagNames) {
+                Tag tag = database.getTag(tagName);
+                tagSet.add(tag != null ? tag : new Tag(tagName));
+            }
+            photo = new Photo(parsedPhoto.path, tagSet);
+            database.addPhoto(photo);
+            dbManager.addTags(photo, tagSet);  // add the tags to the photo and the database if unique
+        }
+        return photo;
+    }
+
+    /**
+     * an image file whose tag names are parsed
+     */
+    private static class ParsedPhoto {
+        /**
+         * the path of the image file
+         */
+        private final String path;
+        /**
+         * the tag names in the file name
+         */
+        private final List<String> tagNames;
+
+        /**
+         * create a parsed image file
+         *
+         * @param path     the path of the image file
+         * @param tagNames the tag names in the file name
+         */
+        ParsedPhoto(String path, List<String> tagNames) {
+            this.path = path;
+            this.tagNames = tagNames;
+        }
+    }
+}
@@ -2,12 +2,14 @@ package Controller;
 
 import Model.Photo;
 import Model.Tag;
+import Model.TagSet;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.scene.control.TextField;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -129,18 +131,23 @@ public class TagController extends MainController implements EventHandler<Action
      * @param activePhoto the current selected photo object
      */
     private void chooseOldTagsEventHandler(Photo activePhoto) {
-        List<Tag> tags = mainView.getSelectedOldTagSet();
+        TagSet tags = mainView.getSelectedOldTagSet();
         if (activePhoto != null && tags != null) {  // the photo exist and the user chose a a set of old tags
             List<Tag> tagList = new ArrayList<>(activePhoto.getCurrentTags());
             String finalName = simulateAdd(simulateDelete(activePhoto.getDirectory(), tagList), tags);
             if (!hasConflictName(finalName)) {
                 // get the current active photo and replace all the tags with the selected old tag set
                 List<Tag> oldTagSet = new ArrayList<>(tags);
-                dbManager.replaceAllTags(activePhoto, oldTagSet);
-                // Since some of the tags may not exist in the database
-                // we need to take the old tag set and add it all back
-                for (Tag oldTag : oldTagSet) {
-                    database.addCurrentExistingTag(oldTag);
+                dbManager.beginBatch();
+                try {
+                    dbManager.replaceAllTags(activePhoto, oldTagSet);
+                    // Since some of the tags may not exist in the database
+                    // we need to take the old tag set and add it all back
+                    for (Tag oldTag : oldTagSet) {
+                        database.addCurrentExistingTag(oldTag);
+                    }
+                } finally {
+                    dbManager.commitBatch();
                 }
             } else
                 viewAgent.updateStatusMessage("Conflict occurs, operation failed");
@@ -170,7 +177,7 @@ public class TagController extends MainController implements EventHandler<Action
      * @param tags        all selected tags
      * @return the simulated result directory
      */
-    private String simulateAdd(String currentName, List<Tag> tags) {
+    private String simulateAdd(String currentName, Collection<Tag> tags) {
         int endIndex = currentName.lastIndexOf(".");
         int size = currentName.length();
         String pathWithoutExtension = currentName.substring(0, endIndex);
@@ -188,12 +195,6 @@ public class TagController extends MainController implements EventHandler<Action
      * @return if any conflicts
      */
     private boolean hasConflictName(String currentName) {
-        List<Photo> allPhotos = database.getAllPhotos();
-        for (Photo photo : allPhotos) {
-            if (photo.getDirectory().equals(currentName)) {
-                return true;
-            }
-        }
-        return false;
+        return database.hasPhoto(currentName);
     }
 }
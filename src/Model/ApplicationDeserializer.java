@@ -1,13 +1,17 @@
 package Model;
 
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.ObjectInputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 
 /**
  * a deserializer of this application using singleton pattern
  * Deserialize will be complete before the program run
  * Retrieve Photo history from the last closure
+ * The catalog file is read if it exists, otherwise the database is read from the .ser file of older versions
+ * and the changes in the journal files are applied to it. A saved file that cannot be read is renamed instead
+ * of being replaced
  *
  * @author Yuan Xu
  * @version 2.0
@@ -30,20 +34,50 @@ public class ApplicationDeserializer {
 
     /**
      * Deserialize the data in the application
+     * The journal of the changes since the catalog file was written is replayed on top of it.
+     * A catalog or .ser file that exists but cannot be read is renamed to "name.corrupt-time" first, so the
+     * catalog file that is written from the journal later never replaces it
      *
-     * @param expectedFileName the file name
-     * @return a deserialized database object if it exist, else null
+     * @param expectedFileName the file name without the extension
+     * @return a deserialized database object if it exist and can be read, else null
+     * @throws UncheckedIOException if a saved file cannot be read and cannot be renamed either, the journal
+     *                              must not be opened then
      */
-    public Object deserialize(String expectedFileName) {
+    public Database deserialize(String expectedFileName) {
+        File catalog = new File(expectedFileName + ApplicationSerializer.CATALOG_EXTENSION);
+        File legacy = new File(expectedFileName + ".ser");
+        Database db = null;
+        long generation = 0;
         try {
-            FileInputStream fileIn = new FileInputStream(expectedFileName + ".ser");
-            ObjectInputStream in = new ObjectInputStream(fileIn);
-            Database db = (Database) in.readObject();
-            in.close();
-            fileIn.close();
-            return db;
-        } catch (IOException | ClassNotFoundException i) {
-            return null;
+            if (catalog.exists()) {
+                generation = CatalogFormat.readGeneration(catalog);
+                db = CatalogFormat.read(catalog);
+            } else if (legacy.exists()) {
+                db = LegacyDatabaseReader.read(legacy);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            setAside(catalog.exists() ? catalog : legacy, e);
+            db = null;
+            generation = 0;
+        }
+        return CatalogJournal.getJournal().replay(db, expectedFileName, generation);
+    }
+
+    /**
+     * rename a saved file that cannot be read, so that nothing replaces it and it can still be recovered
+     *
+     * @param file  the file that cannot be read
+     * @param cause why the file cannot be read
+     * @throws UncheckedIOException if the file cannot be renamed
+     */
+    private void setAside(File file, IOException cause) {
+        File aside = new File(file.getPath() + ".corrupt-" + System.currentTimeMillis());
+        try {
+            Files.move(file.toPath(), aside.toPath());
+        } catch (IOException e) {
+            e.addSuppressed(cause);
+            throw new UncheckedIOException(file + " cannot be read and cannot be renamed", e);
         }
     }
 
@@ -1,11 +1,16 @@
 package Model;
 
-import java.io.FileOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 /**
  * serialize all data of this application before it is closed
+ * The database is saved as a binary catalog file, see CatalogFormat. The catalog is written into a temporary
+ * file first and then renamed over the old one, so the old catalog is kept if the program stops during a save
  *
  * @author Yuan Xu
  * @version 2.0
@@ -13,6 +18,11 @@ import java.io.ObjectOutputStream;
  */
 public class ApplicationSerializer {
 
+    /**
+     * the extension of the catalog file
+     */
+    static final String CATALOG_EXTENSION = ".catalog";
+
     /**
      * the singleton serializer object to serialize all necessary data in this application
      */
@@ -28,20 +38,31 @@ public class ApplicationSerializer {
     }
 
     /**
-     * serialize the application
+     * serialize the database into a catalog file
      *
-     * @param obj              the object that need to be serialized
-     * @param expectedFileName the expected file name
+     * @param db               the database that need to be serialized
+     * @param expectedFileName the expected file name without the extension
      */
-    public void serialize(Object obj, String expectedFileName) {
+    public void serialize(Database db, String expectedFileName) {
         try {
-            FileOutputStream fileOut = new FileOutputStream(expectedFileName + ".ser");
-            ObjectOutputStream out = new ObjectOutputStream(fileOut);
-            out.writeObject(obj);
-            out.close();
-            fileOut.close();
+            // the journal file that is written now is still replayed on top of this catalog
+            write(CatalogFormat.capture(db, CatalogJournal.getJournal().getGeneration()), expectedFileName);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * write a snapshot of the database into the catalog file and replace the old catalog file atomically
+     *
+     * @param snapshot         the snapshot of the database
+     * @param expectedFileName the expected file name without the extension
+     * @throws IOException if the catalog file cannot be written
+     */
+    void write(CatalogFormat.Snapshot snapshot, String expectedFileName) throws IOException {
+        File catalog = new File(expectedFileName + CATALOG_EXTENSION);
+        File temporary = new File(expectedFileName + CATALOG_EXTENSION + ".tmp");
+        CatalogFormat.write(snapshot, temporary);
+        Files.move(temporary.toPath(), catalog.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+    }
 }
@@ -0,0 +1,637 @@
+package Model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * the binary catalog file that the database is saved in
+ * A catalog file is a fixed size header followed by the body:
+ * <pre>
+ * header: magic, schema version, journal generation, body length, CRC32 of the body
+ * body:   strings   - every folder and tag name once, as UTF-8
+ *         tags      - the existing tags in order, as string ids
+ *         tag sets  - every distinct tag set, as sorted string ids of the tag names, delta encoded
+ *         photos    - id, folder string id, file name as UTF-8, current tag set, tag log as tag set ids
+ * </pre>
+ * Every number in the body is an unsigned varint, so small ids take a single byte. The file names are written
+ * with their photos, so the string table only grows with the folders and the tags, not with the photos.
+ * Version 2 catalogs have the file names in the string table and a string id in each photo.
+ * The body is read twice, once for the checksum and once for the tables, and every index is checked before
+ * anything is interned, so a truncated or corrupted catalog never leaves half a library behind. Every photo
+ * record becomes a photo object when the catalog is read, photos are not created lazily.
+ * The journal generation is the generation of the first journal file whose changes are not in the catalog,
+ * version 1 catalogs have no generation and count as generation 0
+ *
+ * @author Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+final class CatalogFormat {
+
+    /**
+     * the first four bytes of a catalog file, "IVCT"
+     */
+    static final int MAGIC = 0x49564354;
+    /**
+     * the schema version that is written, readers reject catalogs with a newer version
+     */
+    static final int VERSION = 3;
+    /**
+     * the size of the header in bytes
+     */
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4;
+    /**
+     * the size of the buffers of the catalog streams
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * no catalog format object is created
+     */
+    private CatalogFormat() {
+    }
+
+    /**
+     * take a copy of the database that can be written while the database keeps changing
+     * Only the references to the paths, the immutable tag sets and the tag log arrays are copied,
+     * so this is quick enough to be done on the thread that changes the database
+     *
+     * @param database   the database
+     * @param generation the generation of the first journal file whose changes are not in the copy
+     * @return the copy of the database
+     */
+    static Snapshot capture(Database database, long generation) {
+        List<Photo> photos = database.getAllPhotos();
+        Snapshot snapshot = new Snapshot(generation, database.getCurrentExistingTags(), photos.size());
+        for (int i = 0; i < photos.size(); i++) {
+            Photo photo = photos.get(i);
+            snapshot.photoIds[i] = photo.getId();
+            snapshot.paths[i] = photo.getDirectory();
+            snapshot.currentTags[i] = photo.getCurrentTags();
+            snapshot.tagLogs[i] = database.getTagLogIds(photo);
+        }
+        return snapshot;
+    }
+
+    /**
+     * write the photos, the existing tags and the tag logs of the snapshot into the catalog file
+     * The photos and tags are written as ids into flat tables in two passes over the photo list, without
+     * following the references between the objects, so the save does not depend on how the tags connect the
+     * photos. Only the folders, the tag names from the tag table and the tag set table are kept in memory, the
+     * photos and their file names are streamed
+     *
+     * @param snapshot the snapshot of the database to write
+     * @param file     the catalog file, it is replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Snapshot snapshot, File file) throws IOException {
+        TagSetStore tagSetStore = TagSetStore.getTagSetStore();
+        int photoCount = snapshot.photoIds.length;
+
+        // the first pass builds the string table and the tag set table, which are written before the photos
+        CatalogTables tables = new CatalogTables();
+        for (Tag tag : snapshot.tags) {
+            tables.tagName(tag.getId());
+        }
+        for (int i = 0; i < photoCount; i++) {
+            tables.folder(snapshot.paths[i]);
+            tables.tagSet(snapshot.currentTags[i]);
+            for (int setId : snapshot.tagLogs[i]) {
+                tables.tagSet(tagSetStore.get(setId));
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+            CRC32 checksum = new CRC32();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), checksum), BUFFER_SIZE));
+
+            writeVarint(out, tables.strings.size());
+            for (String string : tables.strings) {
+                writeString(out, string);
+            }
+            writeVarint(out, snapshot.tags.size());
+            for (Tag tag : snapshot.tags) {
+                writeVarint(out, tables.tagName(tag.getId()));
+            }
+            writeVarint(out, tables.sets.size());
+            for (int[] set : tables.sets) {
+                writeVarint(out, set.length);
+                for (int i = 0; i < set.length; i++) {
+                    writeVarint(out, i == 0 ? set[i] : set[i] - set[i - 1]);
+                }
+            }
+            // the second pass streams the photos, every folder and tag set is already in the tables
+            writeVarint(out, photoCount);
+            for (int i = 0; i < photoCount; i++) {
+                String path = snapshot.paths[i];
+                writeVarint(out, snapshot.photoIds[i]);
+                writeVarint(out, tables.folder(path));
+                writeString(out, path.substring(nameStart(path)));
+                writeVarint(out, tables.tagSet(snapshot.currentTags[i]));
+                writeVarint(out, snapshot.tagLogs[i].length);
+                for (int setId : snapshot.tagLogs[i]) {
+                    writeVarint(out, tables.tagSet(tagSetStore.get(setId)));
+                }
+            }
+            // flush without closing, the channel is still needed to write the header
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(snapshot.generation)
+                    .putLong(channel.position() - HEADER_SIZE).putInt((int) checksum.getValue());
+            header.flip();
+            channel.write(header, 0);
+            channel.force(false);
+        }
+    }
+
+    /**
+     * get the index of the file name in a photo path, the folder is everything before it
+     *
+     * @param path a photo path
+     * @return the index of the first character of the file name
+     */
+    private static int nameStart(String path) {
+        return Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1;
+    }
+
+    /**
+     * read a catalog file into a new database
+     * The checksum of the body is checked first, then the tables are read and their indexes are checked, and
+     * only then the tags are interned and a photo object is created for every photo record
+     *
+     * @param file the catalog file
+     * @return a new database with the photos, the existing tags and the tag logs of the catalog
+     * @throws IOException if the file cannot be read, is not a catalog, has a newer version or is corrupted
+     */
+    static Database read(File file) throws IOException {
+        int checksum = checkBody(file);
+        try (DataInputStream fileIn = new DataInputStream(new BufferedInputStream(new FileInputStream(file),
+                BUFFER_SIZE))) {
+            int version = readVersion(fileIn, file);
+            long bodyLength = readBodyLength(fileIn, version, file);
+            // the catalog may be replaced between the two reads
+            if (fileIn.readInt() != checksum)
+                throw new IOException(file + " changed while it was read");
+            BodyInput in = new BodyInput(fileIn, bodyLength);
+            // the checksum only catches damage, the indexes are checked so that a photo can always be created
+            String[] strings = new String[readCount(in)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[readCount(in)];
+                in.readFully(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            int[] tagStrings = new int[readCount(in)];
+            for (int i = 0; i < tagStrings.length; i++) {
+                tagStrings[i] = readIndex(in, strings.length);
+            }
+            int[][] sets = new int[readCount(in)][];
+            for (int i = 0; i < sets.length; i++) {
+                sets[i] = new int[readCount(in)];
+                int string = 0;
+                for (int j = 0; j < sets[i].length; j++) {
+                    string += readVarint(in);
+                    if (string < 0 || string >= strings.length)
+                        throw new IOException("string id " + string + " is out of range");
+                    sets[i][j] = string;
+                }
+            }
+            int photoCount = readCount(in);
+            String[] paths = new String[photoCount];
+            int[][] photos = new int[photoCount][];
+            for (int i = 0; i < photoCount; i++) {
+                int id = readVarint(in);
+                String folder = strings[readIndex(in, strings.length)];
+                paths[i] = folder + (version >= 3 ? readString(in) : strings[readIndex(in, strings.length)]);
+                int currentTags = readIndex(in, sets.length);
+                int[] photo = new int[2 + readCount(in)];
+                photo[0] = id;
+                photo[1] = currentTags;
+                for (int j = 2; j < photo.length; j++) {
+                    photo[j] = readIndex(in, sets.length);
+                }
+                photos[i] = photo;
+            }
+            if (in.remaining > 0)
+                throw new IOException(file + " is corrupted");
+
+            // the catalog is complete, so the tags can be interned and the photos can be created
+            TagTable tagTable = TagTable.getTagTable();
+            TagSetStore tagSetStore = TagSetStore.getTagSetStore();
+            Database database = new Database();
+            for (int tagString : tagStrings) {
+                database.addCurrentExistingTag(tagTable.getTag(tagTable.intern(strings[tagString])));
+            }
+            TagSet[] tagSets = new TagSet[sets.length];
+            for (int i = 0; i < sets.length; i++) {
+                int[] tagIds = new int[sets[i].length];
+                for (int j = 0; j < tagIds.length; j++) {
+                    tagIds[j] = tagTable.intern(strings[sets[i][j]]);
+                }
+                tagSets[i] = tagSetStore.intern(tagIds);
+            }
+            for (int i = 0; i < photoCount; i++) {
+                int[] record = photos[i];
+                Photo photo = new Photo(record[0], paths[i], tagSets[record[1]]);
+                database.addPhoto(photo);
+                for (int j = 2; j < record.length; j++) {
+                    database.addTagLog(photo, tagSets[record[j]]);
+                }
+            }
+            return database;
+        } catch (EOFException e) {
+            throw new IOException(file + " is truncated", e);
+        }
+    }
+
+    /**
+     * check the header and the checksum of the body of a catalog file
+     * the body is streamed, so only the buffer is in memory
+     *
+     * @param file the catalog file
+     * @return the checksum of the body
+     * @throws IOException if the file cannot be read, is not a catalog, has a newer version or is corrupted
+     */
+    private static int checkBody(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file),
+                BUFFER_SIZE))) {
+            long bodyLength = readBodyLength(in, readVersion(in, file), file);
+            int expectedChecksum = in.readInt();
+            CRC32 checksum = new CRC32();
+            InputStream body = new CheckedInputStream(new BodyInput(in, bodyLength), checksum);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (body.read(buffer) >= 0) {
+                // the bytes only go through the checksum
+            }
+            if ((int) checksum.getValue() != expectedChecksum)
+                throw new IOException(file + " is corrupted");
+            return expectedChecksum;
+        } catch (EOFException e) {
+            throw new IOException(file + " is truncated", e);
+        }
+    }
+
+    /**
+     * read the magic and the version at the start of a catalog file
+     *
+     * @param in   the input at the start of the file
+     * @param file the catalog file
+     * @return the version of the catalog
+     * @throws IOException if the header cannot be read, the file is not a catalog or has a newer version
+     */
+    private static int readVersion(DataInputStream in, File file) throws IOException {
+        if (in.readInt() != MAGIC)
+            throw new IOException(file + " is not a catalog file");
+        int version = in.readInt();
+        if (version > VERSION)
+            throw new IOException(file + " has catalog version " + version + ", the newest known is " + VERSION);
+        return version;
+    }
+
+    /**
+     * read the rest of the header of a catalog file up to the checksum
+     *
+     * @param in      the input after the version
+     * @param version the version of the catalog
+     * @param file    the catalog file
+     * @return the length of the body
+     * @throws IOException if the header cannot be read or the length is out of range
+     */
+    private static long readBodyLength(DataInputStream in, int version, File file) throws IOException {
+        if (version >= 2)
+            in.readLong();
+        long bodyLength = in.readLong();
+        if (bodyLength < 0)
+            throw new IOException(file + " is corrupted");
+        return bodyLength;
+    }
+
+    /**
+     * read the journal generation of a catalog file without reading the body
+     *
+     * @param file the catalog file
+     * @return the generation of the first journal file whose changes are not in the catalog
+     * @throws IOException if the file cannot be read or is not a catalog
+     */
+    static long readGeneration(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException(file + " is not a catalog file");
+            return in.readInt() >= 2 ? in.readLong() : 0;
+        }
+    }
+
+    /**
+     * write a string as its UTF-8 length and bytes
+     *
+     * @param out    the output
+     * @param string the string
+     * @throws IOException if the output cannot be written
+     */
+    static void writeString(DataOutput out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * read a string that was written by writeString
+     *
+     * @param in the input
+     * @return the string
+     * @throws IOException if the input cannot be read
+     */
+    static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[readCount(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * write an unsigned varint, 7 bits per byte with the high bit set on every byte but the last
+     *
+     * @param out   the output
+     * @param value the value, treated as unsigned
+     * @throws IOException if the output cannot be written
+     */
+    static void writeVarint(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * read an unsigned varint
+     *
+     * @param in the input
+     * @return the value
+     * @throws IOException if the input cannot be read or the varint is longer than 5 bytes
+     */
+    static int readVarint(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw new IOException("varint is too long");
+    }
+
+    /**
+     * read a count or a length, which cannot be negative
+     *
+     * @param in the input
+     * @return the count
+     * @throws IOException if the input cannot be read or the count is negative
+     */
+    static int readCount(DataInput in) throws IOException {
+        int count = readVarint(in);
+        if (count < 0)
+            throw new IOException("count " + count + " is out of range");
+        return count;
+    }
+
+    /**
+     * read a count of the body that was not checked yet, a count cannot be larger than the bytes that are left
+     *
+     * @param in the body
+     * @return the count
+     * @throws IOException if the count is out of range
+     */
+    private static int readCount(BodyInput in) throws IOException {
+        int count = readCount((DataInput) in);
+        if (count > in.remaining)
+            throw new IOException("count " + count + " is out of range");
+        return count;
+    }
+
+    /**
+     * read an index into a table that was not checked yet
+     *
+     * @param in   the input
+     * @param size the size of the table
+     * @return the index
+     * @throws IOException if the index is out of range
+     */
+    private static int readIndex(DataInput in, int size) throws IOException {
+        int index = readVarint(in);
+        if (index < 0 || index >= size)
+            throw new IOException("index " + index + " is out of range");
+        return index;
+    }
+
+    /**
+     * a data input over the body of a catalog file, it ends where the body ends
+     */
+    private static final class BodyInput extends DataInputStream {
+        /**
+         * the number of bytes of the body that are not read yet
+         */
+        private long remaining;
+
+        /**
+         * create an input over the body
+         *
+         * @param in     the input at the start of the body
+         * @param length the length of the body
+         */
+        BodyInput(InputStream in, long length) {
+            super(null);
+            remaining = length;
+            this.in = new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    if (remaining <= 0)
+                        return -1;
+                    int b = super.read();
+                    if (b >= 0)
+                        remaining--;
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) throws IOException {
+                    if (length == 0)
+                        return 0;
+                    if (remaining <= 0)
+                        return -1;
+                    int read = super.read(bytes, offset, (int) Math.min(length, remaining));
+                    if (read > 0)
+                        remaining -= read;
+                    return read;
+                }
+            };
+        }
+    }
+
+    /**
+     * a copy of the database that is written into a catalog file
+     */
+    static final class Snapshot {
+        /**
+         * the generation of the first journal file whose changes are not in this snapshot
+         */
+        private final long generation;
+        /**
+         * the existing tags in order
+         */
+        private final List<Tag> tags;
+        /**
+         * the id of every photo
+         */
+        private final int[] photoIds;
+        /**
+         * the path of every photo
+         */
+        private final String[] paths;
+        /**
+         * the current tag set of every photo
+         */
+        private final TagSet[] currentTags;
+        /**
+         * the ids of the tag sets in the tag log of every photo
+         */
+        private final int[][] tagLogs;
+
+        /**
+         * create an empty snapshot for the photos
+         *
+         * @param generation the generation of the first journal file whose changes are not in this snapshot
+         * @param tags       the existing tags in order
+         * @param photoCount the number of photos
+         */
+        private Snapshot(long generation, List<Tag> tags, int photoCount) {
+            this.generation = generation;
+            this.tags = tags;
+            this.photoIds = new int[photoCount];
+            this.paths = new String[photoCount];
+            this.currentTags = new TagSet[photoCount];
+            this.tagLogs = new int[photoCount][];
+        }
+    }
+
+    /**
+     * the string table and the tag set table of a catalog that is being written
+     * every distinct folder, tag name and tag set is given the next index. The tag names are found by their id
+     * in the tag table, so only the folders are kept in a map
+     */
+    private static class CatalogTables {
+        /**
+         * the index of every added folder
+         */
+        private final HashMap<String, Integer> folderIndexes = new HashMap<>();
+        /**
+         * the string index of every added tag name by its tag id, -1 if the tag name is not added
+         */
+        private int[] tagNameIndexes = new int[0];
+        /**
+         * the added strings in the order of their indexes
+         */
+        private final List<String> strings = new ArrayList<>();
+        /**
+         * the index of every added tag set, by the id of the set in the tag set store
+         */
+        private final HashMap<Integer, Integer> setIndexes = new HashMap<>();
+        /**
+         * the added tag sets as sorted string indexes of the tag names, in the order of their indexes
+         */
+        private final List<int[]> sets = new ArrayList<>();
+        /**
+         * the last folder that was asked for and its index, the photos of a folder are mostly next to each other
+         */
+        private String lastFolder;
+        private int lastFolderIndex;
+
+        /**
+         * get the index of the folder of a photo path, the folder is added if it is new
+         *
+         * @param path a photo path
+         * @return the index of the folder
+         */
+        int folder(String path) {
+            int nameStart = nameStart(path);
+            if (lastFolder != null && lastFolder.length() == nameStart && path.startsWith(lastFolder))
+                return lastFolderIndex;
+            String folder = path.substring(0, nameStart);
+            Integer index = folderIndexes.get(folder);
+            if (index == null) {
+                index = strings.size();
+                strings.add(folder);
+                folderIndexes.put(folder, index);
+            }
+            lastFolder = folder;
+            lastFolderIndex = index;
+            return index;
+        }
+
+        /**
+         * get the index of the name of a tag, the name is added if it is new
+         *
+         * @param tagId the id of the tag in the tag table
+         * @return the index of the tag name
+         */
+        int tagName(int tagId) {
+            if (tagId >= tagNameIndexes.length) {
+                int oldLength = tagNameIndexes.length;
+                tagNameIndexes = Arrays.copyOf(tagNameIndexes, Math.max(tagId + 1, oldLength * 2));
+                Arrays.fill(tagNameIndexes, oldLength, tagNameIndexes.length, -1);
+            }
+            if (tagNameIndexes[tagId] < 0) {
+                tagNameIndexes[tagId] = strings.size();
+                strings.add(TagTable.getTagTable().getName(tagId));
+            }
+            return tagNameIndexes[tagId];
+        }
+
+        /**
+         * get the index of the tag set, the set and its tag names are added if it is new
+         *
+         * @param tagSet a tag set
+         * @return the index of the tag set
+         */
+        int tagSet(TagSet tagSet) {
+            Integer index = setIndexes.get(tagSet.getId());
+            if (index == null) {
+                int[] set = new int[tagSet.size()];
+                for (int i = 0; i < set.length; i++) {
+                    set[i] = tagName(tagSet.getTagId(i));
+                }
+                Arrays.sort(set);
+                index = sets.size();
+                sets.add(set);
+                setIndexes.put(tagSet.getId(), index);
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,571 @@
+package Model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * an append-only journal of the changes of the database using singleton pattern
+ * Every change is appended to the journal file as it happens, and the file is forced to the disk in groups
+ * every FORCE_INTERVAL_MILLIS, so a crash loses at most the last moment of work instead of the whole session.
+ * When the application starts, the journal is replayed on top of the last catalog file.
+ * When the journal grows past COMPACT_BYTES, and every SNAPSHOT_INTERVAL_MINUTES if anything changed,
+ * it is folded into a new catalog file in the background
+ * <p>
+ * Each run writes a new journal file "name.journal.generation". A catalog file records the first generation
+ * that is not in it, so the journal files with a smaller generation are deleted and the others are replayed
+ * in order. A record is its length, the CRC32 of its payload and the payload, so a record that was cut short
+ * by a crash ends the replay
+ *
+ * @author Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+public class CatalogJournal implements Observer {
+
+    /**
+     * the first four bytes of a journal file, "IVJL"
+     */
+    private static final int MAGIC = 0x49564A4C;
+    /**
+     * the version of the journal format
+     */
+    private static final int VERSION = 1;
+    /**
+     * the extension of the journal files, followed by the generation
+     */
+    private static final String JOURNAL_EXTENSION = ".journal.";
+    /**
+     * the time between two forces of the journal file to the disk
+     */
+    private static final long FORCE_INTERVAL_MILLIS = 200;
+    /**
+     * the time between two checks if the journal should be folded into a new catalog file
+     */
+    private static final long SNAPSHOT_INTERVAL_MINUTES = 5;
+    /**
+     * the journal is folded into a new catalog file when it is larger than this
+     */
+    private static final long COMPACT_BYTES = 8L << 20;
+    /**
+     * the record types
+     */
+    private static final byte PHOTO = 1, TAG_ADDED = 2, TAG_REMOVED = 3, TAG_SET_LOGGED = 4, CLEARED = 5,
+            PHOTO_REMOVED = 6;
+
+    /**
+     * the singleton journal object
+     */
+    private static final CatalogJournal JOURNAL = new CatalogJournal();
+
+    /**
+     * the file name of the catalog without the extension, null if the journal is not open
+     */
+    private String fileName;
+    /**
+     * the generation of the journal file that is written
+     */
+    private long generation;
+    /**
+     * the channel of the journal file that is written
+     */
+    private FileChannel channel;
+    /**
+     * the buffered stream of the journal file that is written
+     */
+    private DataOutputStream out;
+    /**
+     * the number of bytes in the journal files since the last catalog file
+     */
+    private long journalBytes;
+    /**
+     * if records are written since the journal file was last forced to the disk
+     */
+    private boolean dirty;
+    /**
+     * the background compaction, null if none is started
+     */
+    private Future<?> compaction;
+    /**
+     * the threads that force the journal file to the disk and write the compacted catalog files
+     */
+    private ScheduledExecutorService executor;
+    /**
+     * runs a task on the thread that changes the database, the periodic snapshots are taken there
+     * so that the copy of the database is consistent
+     */
+    private Executor databaseThread = Runnable::run;
+
+    /**
+     * get the singleton journal object
+     *
+     * @return the only journal object
+     */
+    public static CatalogJournal getJournal() {
+        return JOURNAL;
+    }
+
+    /**
+     * get the generation of the journal file that is written
+     *
+     * @return the generation, 0 if the journal is not open
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * set the thread that changes the database, the periodic snapshots of the database are taken on it
+     *
+     * @param databaseThread runs a task on the thread that changes the database
+     */
+    public void setDatabaseThread(Executor databaseThread) {
+        this.databaseThread = databaseThread;
+    }
+
+    /**
+     * replay the journal files of the catalog on top of the database read from the catalog file
+     * The journal files that are already in the catalog file are deleted
+     *
+     * @param database          the database read from the catalog file, null if there is none
+     * @param catalogName       the file name of the catalog without the extension
+     * @param catalogGeneration the generation of the first journal file that is not in the catalog file
+     * @return the database with the changes of the journal, null if there is no database and no journal
+     */
+    Database replay(Database database, String catalogName, long catalogGeneration) {
+        journalBytes = 0;
+        for (Map.Entry<Long, File> entry : findJournalFiles(catalogName).entrySet()) {
+            File file = entry.getValue();
+            if (entry.getKey() < catalogGeneration) {
+                file.delete();
+                continue;
+            }
+            generation = Math.max(generation, entry.getKey());
+            if (database == null)
+                database = new Database();
+            try {
+                journalBytes += replayFile(database, file);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        generation = Math.max(generation, catalogGeneration);
+        return database;
+    }
+
+    /**
+     * start a new journal file and write every change of the database and the database manager into it
+     * The journal is folded into a new catalog file right away if changes were replayed when it was loaded,
+     * or if there is no catalog file yet
+     *
+     * @param catalogName the file name of the catalog without the extension
+     * @throws IOException if the journal file cannot be created
+     */
+    public synchronized void open(String catalogName) throws IOException {
+        if (fileName != null)
+            return;
+        fileName = catalogName;
+        // one thread forces the journal while the other one writes a catalog file
+        executor = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "catalog journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        startJournalFile(Math.max(generation, findLastGeneration(catalogName)) + 1);
+        executor.scheduleWithFixedDelay(this::force, FORCE_INTERVAL_MILLIS, FORCE_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(() -> databaseThread.execute(this::snapshotIfChanged),
+                SNAPSHOT_INTERVAL_MINUTES, SNAPSHOT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        Database.getDatabase().addObserver(this);
+        DatabaseManager.getDbManager().addObserver(this);
+        // a library that was replayed or read from the old .ser file is saved as a catalog file
+        if (journalBytes > 0 || !new File(catalogName + ApplicationSerializer.CATALOG_EXTENSION).exists())
+            compact();
+    }
+
+    /**
+     * stop writing changes, write and force the rest of the journal to the disk and close the journal file
+     * A compaction that is still running is waited for, it is safe to exit during one anyway since the
+     * catalog file is only replaced when the new one is complete
+     */
+    public void close() {
+        Future<?> running;
+        synchronized (this) {
+            if (fileName == null)
+                return;
+            Database.getDatabase().deleteObserver(this);
+            DatabaseManager.getDbManager().deleteObserver(this);
+            running = compaction;
+        }
+        try {
+            if (running != null)
+                running.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        synchronized (this) {
+            executor.shutdownNow();
+            try {
+                out.flush();
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            fileName = null;
+            compaction = null;
+            journalBytes = 0;
+        }
+    }
+
+    /**
+     * fold the journal into a new catalog file in the background if anything changed since the last one
+     * Nothing is written if no change is journaled since the last catalog file
+     *
+     * @return the background compaction, it is already done if nothing changed
+     */
+    public synchronized Future<?> snapshotIfChanged() {
+        if (journalBytes == 0)
+            return CompletableFuture.completedFuture(null);
+        return compact();
+    }
+
+    /**
+     * fold the journal into a new catalog file in the background
+     * A copy of the database is taken and a new journal file is started right away, so the changes after this
+     * call go into the new journal file. The older journal files are deleted when the catalog file is written
+     *
+     * @return the background compaction, it is already done if the journal is not open
+     */
+    public synchronized Future<?> compact() {
+        if (fileName == null)
+            return CompletableFuture.completedFuture(null);
+        if (compaction != null && !compaction.isDone())
+            return compaction;
+        try {
+            startJournalFile(generation + 1);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return CompletableFuture.completedFuture(null);
+        }
+        CatalogFormat.Snapshot snapshot = CatalogFormat.capture(Database.getDatabase(), generation);
+        String catalogName = fileName;
+        long catalogGeneration = generation;
+        journalBytes = 0;
+        compaction = executor.submit(() -> {
+            try {
+                ApplicationSerializer.getSerializer().write(snapshot, catalogName);
+                for (Map.Entry<Long, File> entry : findJournalFiles(catalogName).entrySet()) {
+                    if (entry.getKey() < catalogGeneration)
+                        entry.getValue().delete();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        return compaction;
+    }
+
+    @Override
+    public void update(Observable o, Object arg) {
+        List<DatabaseChange> changes = new ArrayList<>();
+        if (arg instanceof DatabaseChange) {
+            changes.add((DatabaseChange) arg);
+        } else if (arg instanceof List) {
+            // a committed batch sends all the changes of the database at once
+            for (Object item : (List) arg) {
+                if (item instanceof DatabaseChange)
+                    changes.add((DatabaseChange) item);
+            }
+        }
+        // a photo record has the whole state of the photo, so one record for each photo of a batch is enough
+        Set<Photo> writtenPhotos = new HashSet<>();
+        try {
+            for (DatabaseChange change : changes) {
+                writeRecord(change, writtenPhotos);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        boolean full;
+        synchronized (this) {
+            full = journalBytes > COMPACT_BYTES;
+        }
+        if (full)
+            compact();
+    }
+
+    /**
+     * append the record of a change to the journal file
+     *
+     * @param change        the change of the database
+     * @param writtenPhotos the photos that already have a record for the same notification
+     * @throws IOException if the record cannot be written
+     */
+    private void writeRecord(DatabaseChange change, Set<Photo> writtenPhotos) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(bytes);
+        switch (change.getType()) {
+            case PHOTO_ADDED:
+            case PHOTO_RENAMED:
+                Photo photo = change.getPhoto();
+                if (!writtenPhotos.add(photo))
+                    return;
+                record.writeByte(PHOTO);
+                CatalogFormat.writeVarint(record, photo.getId());
+                CatalogFormat.writeString(record, photo.getDirectory());
+                writeTagNames(record, photo.getCurrentTags());
+                break;
+            case PHOTO_REMOVED:
+                record.writeByte(PHOTO_REMOVED);
+                CatalogFormat.writeVarint(record, change.getPhoto().getId());
+                break;
+            case TAG_ADDED:
+                record.writeByte(TAG_ADDED);
+                CatalogFormat.writeString(record, change.getTag().getTagName());
+                break;
+            case TAG_REMOVED:
+                record.writeByte(TAG_REMOVED);
+                CatalogFormat.writeString(record, change.getTag().getTagName());
+                break;
+            case TAG_SET_LOGGED:
+                record.writeByte(TAG_SET_LOGGED);
+                CatalogFormat.writeVarint(record, change.getPhoto().getId());
+                writeTagNames(record, change.getTagSet());
+                break;
+            case CLEARED:
+                record.writeByte(CLEARED);
+                break;
+            default:
+                // a loaded catalog is already in the catalog file and the journal files
+                return;
+        }
+        byte[] payload = bytes.toByteArray();
+        CRC32 checksum = new CRC32();
+        checksum.update(payload, 0, payload.length);
+        synchronized (this) {
+            if (fileName == null)
+                return;
+            out.writeInt(payload.length);
+            out.writeInt((int) checksum.getValue());
+            out.write(payload);
+            journalBytes += 8 + payload.length;
+            dirty = true;
+        }
+    }
+
+    /**
+     * write the names of the tags in the tag set
+     *
+     * @param out    the output
+     * @param tagSet the tag set
+     * @throws IOException if the output cannot be written
+     */
+    private static void writeTagNames(DataOutputStream out, TagSet tagSet) throws IOException {
+        TagTable tagTable = TagTable.getTagTable();
+        CatalogFormat.writeVarint(out, tagSet.size());
+        for (int i = 0; i < tagSet.size(); i++) {
+            CatalogFormat.writeString(out, tagTable.getName(tagSet.getTagId(i)));
+        }
+    }
+
+    /**
+     * read the names of the tags of a tag set and intern the tag set
+     *
+     * @param in the input
+     * @return the interned tag set
+     * @throws IOException if the input cannot be read
+     */
+    private static TagSet readTagNames(DataInputStream in) throws IOException {
+        TagTable tagTable = TagTable.getTagTable();
+        int[] tagIds = new int[CatalogFormat.readCount(in)];
+        for (int i = 0; i < tagIds.length; i++) {
+            tagIds[i] = tagTable.intern(CatalogFormat.readString(in));
+        }
+        return TagSetStore.getTagSetStore().intern(tagIds);
+    }
+
+    /**
+     * apply the records of a journal file to the database, the replay stops at the first incomplete record
+     *
+     * @param database the database
+     * @param file     the journal file
+     * @return the number of bytes of the complete records
+     * @throws IOException if the file cannot be read or is not a journal file
+     */
+    private static long replayFile(Database database, File file) throws IOException {
+        TagTable tagTable = TagTable.getTagTable();
+        long length = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() > VERSION)
+                throw new IOException(file + " is not a journal file");
+            in.readLong();
+            while (true) {
+                byte[] payload;
+                try {
+                    int size = in.readInt();
+                    int expectedChecksum = in.readInt();
+                    if (size < 0 || size > file.length())
+                        return length;
+                    payload = new byte[size];
+                    in.readFully(payload);
+                    CRC32 checksum = new CRC32();
+                    checksum.update(payload, 0, payload.length);
+                    if ((int) checksum.getValue() != expectedChecksum)
+                        return length;
+                } catch (EOFException e) {
+                    return length;
+                }
+                length += 8 + payload.length;
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                switch (record.readByte()) {
+                    case PHOTO:
+                        int id = CatalogFormat.readVarint(record);
+                        String path = CatalogFormat.readString(record);
+                        database.restorePhoto(id, path, readTagNames(record));
+                        break;
+                    case TAG_ADDED:
+                        Tag addedTag = tagTable.getTag(tagTable.intern(CatalogFormat.readString(record)));
+                        database.addCurrentExistingTag(addedTag);
+                        break;
+                    case TAG_REMOVED:
+                        Tag removedTag = tagTable.getTag(tagTable.intern(CatalogFormat.readString(record)));
+                        database.deleteCurrentExistingTag(removedTag);
+                        break;
+                    case TAG_SET_LOGGED:
+                        Photo photo = database.getPhoto(CatalogFormat.readVarint(record));
+                        TagSet tagSet = readTagNames(record);
+                        if (photo != null)
+                            database.addTagLog(photo, tagSet);
+                        break;
+                    case CLEARED:
+                        database.clear();
+                        break;
+                    case PHOTO_REMOVED:
+                        Photo removedPhoto = database.getPhoto(CatalogFormat.readVarint(record));
+                        if (removedPhoto != null)
+                            database.removePhoto(removedPhoto);
+                        break;
+                    default:
+                        throw new IOException(file + " has an unknown record");
+                }
+            }
+        }
+    }
+
+    /**
+     * create the journal file of the generation and write into it from now on
+     * The previous journal file is forced to the disk and closed
+     *
+     * @param newGeneration the generation of the new journal file
+     * @throws IOException if the journal file cannot be created
+     */
+    private synchronized void startJournalFile(long newGeneration) throws IOException {
+        FileChannel newChannel = FileChannel.open(new File(fileName + JOURNAL_EXTENSION + newGeneration).toPath(),
+                CREATE_NEW, WRITE);
+        DataOutputStream newOut = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(newChannel)));
+        newOut.writeInt(MAGIC);
+        newOut.writeInt(VERSION);
+        newOut.writeLong(newGeneration);
+        newOut.flush();
+        newChannel.force(false);
+        if (channel != null && channel.isOpen()) {
+            out.flush();
+            channel.force(false);
+            channel.close();
+        }
+        channel = newChannel;
+        out = newOut;
+        generation = newGeneration;
+        dirty = false;
+    }
+
+    /**
+     * force the written records to the disk, called every FORCE_INTERVAL_MILLIS
+     */
+    private void force() {
+        FileChannel forced;
+        synchronized (this) {
+            if (!dirty || fileName == null)
+                return;
+            try {
+                out.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            dirty = false;
+            forced = channel;
+        }
+        // the records are forced without holding the lock, so the changes of the database are not blocked
+        try {
+            forced.force(false);
+        } catch (IOException e) {
+            // the channel is closed when a new journal file is started, which forces it first
+        }
+    }
+
+    /**
+     * find the journal files of the catalog
+     *
+     * @param catalogName the file name of the catalog without the extension
+     * @return the journal files by their generation in ascending order
+     */
+    private static TreeMap<Long, File> findJournalFiles(String catalogName) {
+        File catalog = new File(catalogName).getAbsoluteFile();
+        String prefix = catalog.getName() + JOURNAL_EXTENSION;
+        TreeMap<Long, File> journalFiles = new TreeMap<>();
+        File[] files = catalog.getParentFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().startsWith(prefix)) {
+                    try {
+                        journalFiles.put(Long.parseLong(file.getName().substring(prefix.length())), file);
+                    } catch (NumberFormatException e) {
+                        // not a journal file
+                    }
+                }
+            }
+        }
+        return journalFiles;
+    }
+
+    /**
+     * find the generation of the last journal file of the catalog
+     *
+     * @param catalogName the file name of the catalog without the extension
+     * @return the last generation, 0 if there is no journal file
+     */
+    private static long findLastGeneration(String catalogName) {
+        TreeMap<Long, File> journalFiles = findJournalFiles(catalogName);
+        return journalFiles.isEmpty() ? 0 : journalFiles.lastKey();
+    }
+}
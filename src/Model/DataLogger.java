@@ -1,17 +1,38 @@
 package Model;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
-import java.util.logging.FileHandler;
-import java.util.logging.Handler;
-import java.util.logging.Logger;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.util.logging.SimpleFormatter;
 
 /**
  * a object that log the name information of this application using singleton pattern
  * The old history of names will be stores in a txt file
+ * <p>
+ * The renames are put into a bounded queue as rename records and written to the file by a background thread,
+ * so a bulk retag does not wait for the disk on the JavaFX thread. The writer takes up to BATCH_SIZE records at
+ * a time and writes them with one flush, and a record never waits longer than FLUSH_INTERVAL_MILLIS before it
+ * is written. The lines are formatted the same way as the java logger formatted them before, and the same
+ * records are appended to the rename history, where the renames of one photo can be looked up
  *
  * @author Shiyi Tao
  * @version 2.0
@@ -19,28 +40,62 @@ import java.util.logging.SimpleFormatter;
  */
 public class DataLogger implements Observer {
     /**
-     * get the built in logger object
+     * the file that the renames are appended to
      */
-    private static final Logger logger = Logger.getLogger("global");
+    static final String LOG_FILE = "nameLog.txt";
+    /**
+     * the number of records that can wait in the queue, a rename waits for a free slot if the queue is full
+     */
+    private static final int CAPACITY = 1 << 14;
+    /**
+     * the largest number of records that are written with one flush
+     */
+    private static final int BATCH_SIZE = 1024;
+    /**
+     * the longest time in milliseconds that a record waits before it is written
+     */
+    private static final long FLUSH_INTERVAL_MILLIS = 500;
+    /**
+     * the longest time in seconds that flush waits for the writer
+     */
+    private static final long FLUSH_TIMEOUT_SECONDS = 10;
+    /**
+     * a record that asks the writer to write everything before it right away
+     */
+    private static final RenameRecord FLUSH = new RenameRecord(-1, "", "", 0);
     /**
      * get the dataLogger object
      */
     private static final DataLogger DATA_LOGGER = new DataLogger();
 
+    /**
+     * the renames that are not written yet
+     */
+    private final BlockingQueue<RenameRecord> pending = new ArrayBlockingQueue<>(CAPACITY);
+    /**
+     * formats the records the same way as the java logger
+     */
+    private final SimpleFormatter formatter = new SimpleFormatter();
+    /**
+     * the number of records that were put into the queue, including the flush requests
+     */
+    private long queued;
+    /**
+     * the number of records that were taken out of the queue and written to the file
+     */
+    private long written;
+    /**
+     * the flushes that are not done yet, by the number of records that must be written before they are done
+     */
+    private final TreeMap<Long, CompletableFuture<Void>> flushes = new TreeMap<>();
+
     /**
      * create a new dataLogger to log information
      */
     private DataLogger() {
-        // this is append enabled fileHandler
-        try {
-            Handler fileHandler = new FileHandler("nameLog.txt", true);
-            SimpleFormatter formatter = new SimpleFormatter();
-            fileHandler.setFormatter(formatter);
-            logger.addHandler(fileHandler);
-            logger.setUseParentHandlers(false);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        Thread writer = new Thread(this::writeRecords, "name log writer");
+        writer.setDaemon(true);
+        writer.start();
     }
 
     /**
@@ -55,19 +110,160 @@ public class DataLogger implements Observer {
     /**
      * add log information into the file
      *
+     * @param photoId      the id of the renamed photo
      * @param previousName the old name information
      * @param newName      the new name information
      */
-    void addLog(String previousName, String newName) {
+    void addLog(int photoId, String previousName, String newName) {
         if (!previousName.equals(newName))
-            logger.info("Old Name: " + previousName + " New Name: " + newName);
+            enqueue(new RenameRecord(photoId, previousName, newName, System.currentTimeMillis()));
+    }
+
+    /**
+     * wait until every rename that was logged before this call is written to the file
+     * this blocks for up to FLUSH_TIMEOUT_SECONDS, so it is only called when the application exits, the JavaFX
+     * thread uses flushAsync
+     */
+    public void flush() {
+        try {
+            flushAsync().get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * ask the writer to write every rename that was logged before this call without waiting for it
+     * the future is completed on the writer thread, so the caller goes back to its own thread to use the file
+     *
+     * @return a future that is done when the renames are written to the file and the rename history, each
+     * caller gets its own copy, so a caller that gives up on it does not fail the others
+     */
+    public CompletableFuture<Void> flushAsync() {
+        long target;
+        synchronized (pending) {
+            // a full queue is written as a full batch right away, so the request is only needed if it fits
+            boolean requested = pending.offer(FLUSH);
+            synchronized (this) {
+                target = requested ? ++queued : queued;
+            }
+        }
+        synchronized (this) {
+            if (written >= target)
+                return CompletableFuture.completedFuture(null);
+            return flushes.computeIfAbsent(target, key -> new CompletableFuture<>()).copy();
+        }
+    }
+
+    /**
+     * put a record into the queue, wait for a free slot if the writer is behind
+     *
+     * @param record the record
+     * @return the number of records that were queued up to and including this one
+     */
+    private long enqueue(RenameRecord record) {
+        // the count is taken together with the put, so it matches the order of the records in the queue
+        synchronized (pending) {
+            try {
+                pending.put(record);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                return ++queued;
+            }
+        }
+    }
+
+    /**
+     * take the records out of the queue and append them to the file in batches, this runs on the writer thread
+     * the file is opened for each batch, so a batch that cannot be written does not stop the next ones
+     */
+    private void writeRecords() {
+        List<RenameRecord> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (true) {
+                batch.add(pending.take());
+                long deadline = System.currentTimeMillis() + FLUSH_INTERVAL_MILLIS;
+                // wait for the batch to fill up unless the time is up or someone waits for the file
+                while (batch.size() < BATCH_SIZE && batch.get(batch.size() - 1) != FLUSH) {
+                    long left = deadline - System.currentTimeMillis();
+                    RenameRecord next = left > 0 ? pending.poll(left, TimeUnit.MILLISECONDS) : null;
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                }
+                // the flush request is only counted, it is the last record of the batch if there is one
+                int batchSize = batch.size();
+                batch.remove(FLUSH);
+                if (!batch.isEmpty()) {
+                    try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                            new FileOutputStream(LOG_FILE, true), StandardCharsets.UTF_8))) {
+                        for (RenameRecord record : batch) {
+                            out.write(format(record));
+                        }
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                    RenameHistory.getRenameHistory().append(batch);
+                }
+                markWritten(batchSize);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * count the records that are written and complete the flushes that are done
+     * the flushes are completed outside the lock, since their callers may go on right away
+     *
+     * @param count the number of records that are written
+     */
+    private void markWritten(int count) {
+        List<CompletableFuture<Void>> done;
+        synchronized (this) {
+            written += count;
+            Map<Long, CompletableFuture<Void>> reached = flushes.headMap(written, true);
+            done = new ArrayList<>(reached.values());
+            reached.clear();
+        }
+        for (CompletableFuture<Void> flush : done) {
+            flush.complete(null);
+        }
+    }
+
+    /**
+     * format a rename record as a line of the name log
+     *
+     * @param record the rename record
+     * @return the formatted lines
+     */
+    private String format(RenameRecord record) {
+        LogRecord logRecord = new LogRecord(Level.INFO,
+                "Old Name: " + record.getPreviousName() + " New Name: " + record.getNewName());
+        logRecord.setInstant(Instant.ofEpochMilli(record.getTime()));
+        logRecord.setLoggerName("global");
+        logRecord.setSourceClassName(DataLogger.class.getName());
+        logRecord.setSourceMethodName("addLog");
+        return formatter.format(logRecord);
     }
 
     @Override
     public void update(Observable o, Object arg) {
-        if (arg instanceof HashMap) {
-            HashMap<String, String> data = (HashMap) arg;
-            addLog(data.get("oldName"), data.get("newName"));
+        if (arg instanceof DatabaseChange) {
+            DatabaseChange change = (DatabaseChange) arg;
+            if (change.getType() == DatabaseChange.Type.PHOTO_RENAMED)
+                addLog(change.getPhoto().getId(), new File(change.getOldPath()).getName(),
+                        change.getPhoto().getNameWithExtension());
+        } else if (arg instanceof List) {
+            // a committed batch sends all the changes of the database at once
+            for (Object item : (List) arg) {
+                update(o, item);
+            }
         }
     }
 }
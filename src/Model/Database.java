@@ -1,7 +1,13 @@
 package Model;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.file.InvalidPathException;
 import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * Database class stores all the information for photos and tags
@@ -18,28 +24,156 @@ public class Database extends Observable implements Serializable {
     private static Database database = new Database();
     /**
      * store all the photo objects
+     * a removed photo is replaced by the last photo, so the order only stays the order they were added in
+     * until a photo is removed
      */
     private List<Photo> allPhotos;
     /**
-     * a history of sets of tag for each image
+     * index of all the photo objects by their normalized path, rebuilt after deserialization
+     * it is sorted, so the photos in a folder are next to each other, and it can be read from any thread
      */
-    private HashMap<Photo, List<HashSet<Tag>>> tagLogs;
+    private transient NavigableMap<String, Photo> photosByPath;
     /**
-     * store all currently existing UNIQUE tags. Tagname: Tag obj
+     * all the photo objects by their id, the photo id is the index of the array
      */
-    private List<Tag> currentExistingTags;
+    private transient Photo[] photosById;
+    /**
+     * the index of every photo in allPhotos, the photo id is the index of the array
+     */
+    private transient int[] photoPositions;
+    /**
+     * the ids of all the photo objects
+     */
+    private transient PhotoBitmap allPhotoIds;
+    /**
+     * a history of sets of tag for each image. Photo id: ids of the tag sets in the tag set store
+     */
+    private transient HashMap<Integer, int[]> tagLogs;
+    /**
+     * the store of the shared tag sets in the tag logs
+     */
+    private transient TagSetStore tagSetStore = TagSetStore.getTagSetStore();
+    /**
+     * store all currently existing UNIQUE tags in insertion order. Tag id: Tag obj
+     */
+    private transient Map<Integer, Tag> currentExistingTags;
+    /**
+     * the symbol table that gives every tag name an id
+     */
+    private transient TagTable tagTable = TagTable.getTagTable();
+    /**
+     * the number of photos in the database that have each tag, the tag id is the index of the array
+     */
+    private transient int[] tagUsage;
+    /**
+     * the ids of the photos in the database that have each tag, the tag id is the index of the array
+     * only this database changes them, when a photo is added, removed or retagged
+     */
+    private transient PhotoBitmap[] postings;
+    /**
+     * the number of open batches, the observers are not notified while a batch is open
+     */
+    private transient int batchDepth;
+    /**
+     * the changes made while a batch is open, they are sent by the caller when the batch ends
+     */
+    private transient List<DatabaseChange> batchChanges = new ArrayList<>();
     /**
      * the accepted photo extensions
      */
     private String[] acceptableImageExtensions = {"jpg", "jpeg", "png", "bmp", "gif"};
 
     /**
-     * create a database object
+     * create a database object, only the singleton and the databases read from a saved catalog are created
      */
-    private Database() {
+    Database() {
         allPhotos = new ArrayList<>();
-        currentExistingTags = new ArrayList<>();
+        photosByPath = new ConcurrentSkipListMap<>();
+        photosById = new Photo[16];
+        photoPositions = new int[16];
+        allPhotoIds = new PhotoBitmap();
+        currentExistingTags = new LinkedHashMap<>();
+        tagLogs = new HashMap<>();
+        tagUsage = new int[16];
+        postings = new PhotoBitmap[16];
+        batchChanges = new ArrayList<>();
+    }
+
+    /**
+     * write the existing tags and the tag logs with tag objects since the ids only live as long as the program
+     * a tag set that is in many tag logs is only written once
+     *
+     * @param out the stream that the database is written to
+     * @throws IOException if the stream cannot be written
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(new ArrayList<>(currentExistingTags.values()));
+        out.writeInt(tagLogs.size());
+        for (Map.Entry<Integer, int[]> entry : tagLogs.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeInt(entry.getValue().length);
+            for (int setId : entry.getValue()) {
+                out.writeObject(tagSetStore.get(setId));
+            }
+        }
+    }
+
+    /**
+     * rebuild the indexes, the existing tags and the tag logs after the database is deserialized
+     *
+     * @param in the stream that the database is read from
+     * @throws IOException            if the stream cannot be read
+     * @throws ClassNotFoundException if a class of the serialized data cannot be found
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        photosByPath = new ConcurrentSkipListMap<>();
+        photosById = new Photo[16];
+        photoPositions = new int[16];
+        allPhotoIds = new PhotoBitmap();
+        for (int i = 0; i < allPhotos.size(); i++) {
+            Photo photo = allPhotos.get(i);
+            photosByPath.put(normalizePath(photo.getDirectory()), photo);
+            indexPhotoId(photo, i);
+        }
+        tagTable = TagTable.getTagTable();
+        currentExistingTags = new LinkedHashMap<>();
+        for (Tag tag : (List<Tag>) in.readObject()) {
+            currentExistingTags.put(tag.getId(), tag);
+        }
+        tagSetStore = TagSetStore.getTagSetStore();
         tagLogs = new HashMap<>();
+        int logCount = in.readInt();
+        for (int i = 0; i < logCount; i++) {
+            int photoId = in.readInt();
+            int[] setIds = new int[in.readInt()];
+            for (int j = 0; j < setIds.length; j++) {
+                setIds[j] = ((TagSet) in.readObject()).getId();
+            }
+            tagLogs.put(photoId, setIds);
+        }
+        tagUsage = new int[16];
+        postings = new PhotoBitmap[16];
+        for (Photo photo : allPhotos) {
+            indexPhotoTags(photo, 1);
+        }
+        batchChanges = new ArrayList<>();
+    }
+
+    /**
+     * normalize a photo path so that the same file always maps to the same index key
+     *
+     * @param path a photo path
+     * @return the normalized path
+     */
+    static String normalizePath(String path) {
+        try {
+            return new File(path).toPath().normalize().toString();
+        } catch (InvalidPathException e) {
+            return new File(path).getPath();
+        }
     }
 
     /**
@@ -54,10 +188,10 @@ public class Database extends Observable implements Serializable {
     /**
      * get all photos stored in the database
      *
-     * @return a list of all photos
+     * @return a read-only list of all photos
      */
     public List<Photo> getAllPhotos() {
-        return allPhotos;
+        return Collections.unmodifiableList(allPhotos);
     }
 
     /**
@@ -67,29 +201,16 @@ public class Database extends Observable implements Serializable {
      * @return if this database has this photo
      */
     public boolean hasPhoto(String photoPath) {
-        for (Photo photo : allPhotos) {
-            if (photo.getDirectory().equals(photoPath))
-                return true;
-        }
-        return false;
-    }
-
-    /**
-     * get all the tag logs
-     *
-     * @return a hash map of tag logs
-     */
-    public HashMap<Photo, List<HashSet<Tag>>> getTagLogs() {
-        return tagLogs;
+        return photosByPath.containsKey(normalizePath(photoPath));
     }
 
     /**
      * get all the existing tags
      *
-     * @return all the unique tags in the database
+     * @return all the unique tags in the database in the order they were added
      */
     public List<Tag> getCurrentExistingTags() {
-        return currentExistingTags;
+        return Collections.unmodifiableList(new ArrayList<>(currentExistingTags.values()));
     }
 
     /**
@@ -108,9 +229,8 @@ public class Database extends Observable implements Serializable {
      */
     public void deleteCurrentExistingTag(Tag tag) {
         if (containTag(tag) && isGarbageTag(tag)) {
-            currentExistingTags.remove(tag);
-            setChanged();
-            notifyObservers();
+            currentExistingTags.remove(tag.getId());
+            notifyChanged(DatabaseChange.tagRemoved(tag));
         }
     }
 
@@ -121,7 +241,7 @@ public class Database extends Observable implements Serializable {
      * @return if the database has this tag
      */
     public boolean containTag(Tag tag) {
-        return currentExistingTags.contains(tag);
+        return containTag(tag.getTagName());
     }
 
     /**
@@ -131,11 +251,7 @@ public class Database extends Observable implements Serializable {
      * @return return true if the database contains the tag object else null
      */
     public boolean containTag(String tagName) {
-        for (Tag tag : currentExistingTags) {
-            if (tag.getTagName().equals(tagName))
-                return true;
-        }
-        return false;
+        return getTag(tagName) != null;
     }
 
     /**
@@ -145,11 +261,8 @@ public class Database extends Observable implements Serializable {
      * @return the tag object
      */
     public Tag getTag(String tagName) {
-        for (Tag tag : currentExistingTags) {
-            if (tag.getTagName().equals(tagName))
-                return tag;
-        }
-        return null;
+        int id = tagTable.getId(tagName);
+        return id < 0 ? null : currentExistingTags.get(id);
     }
 
     /**
@@ -158,12 +271,9 @@ public class Database extends Observable implements Serializable {
      * @param tag the tag object
      */
     public void addCurrentExistingTag(Tag tag) {
-        if (!currentExistingTags.contains(tag)) {
-            currentExistingTags.add(tag);
-            setChanged();
-            notifyObservers();
+        if (currentExistingTags.putIfAbsent(tag.getId(), tag) == null) {
+            notifyChanged(DatabaseChange.tagAdded(tag));
         }
-
     }
 
     /**
@@ -183,14 +293,37 @@ public class Database extends Observable implements Serializable {
      * @param img the image object
      */
     public void addPhoto(Photo img) {
-        if (!allPhotos.contains(img)) {
+        if (photosByPath.putIfAbsent(normalizePath(img.getDirectory()), img) == null) {
             allPhotos.add(img);
-            List<HashSet<Tag>> sets = new ArrayList<>();
-            sets.add(new HashSet<>());
-            tagLogs.put(img, sets);
+            indexPhotoId(img, allPhotos.size() - 1);
+            indexPhotoTags(img, 1);
+            tagLogs.put(img.getId(), new int[]{TagSetStore.EMPTY_SET_ID});
 
-            setChanged();
-            notifyObservers();
+            notifyChanged(DatabaseChange.photoAdded(img));
+        }
+    }
+
+    /**
+     * remove a photo from the database after its file is deleted outside the application
+     * the tags of the photo stay in the existing tags until the caller deletes the unused ones.
+     * The last photo takes the place of the removed one, so the list of all the photos is not searched or shifted
+     *
+     * @param photo the photo object
+     */
+    public void removePhoto(Photo photo) {
+        if (photosByPath.remove(normalizePath(photo.getDirectory()), photo)) {
+            int position = photoPositions[photo.getId()];
+            Photo last = allPhotos.remove(allPhotos.size() - 1);
+            if (last != photo) {
+                allPhotos.set(position, last);
+                photoPositions[last.getId()] = position;
+            }
+            photosById[photo.getId()] = null;
+            allPhotoIds.remove(photo.getId());
+            indexPhotoTags(photo, -1);
+            tagLogs.remove(photo.getId());
+
+            notifyChanged(DatabaseChange.photoRemoved(photo));
         }
     }
 
@@ -201,11 +334,112 @@ public class Database extends Observable implements Serializable {
      * @return the photo object
      */
     public Photo getPhoto(String path) {
-        for (Photo pic : allPhotos) {
-            if (pic.getDirectory().equals(path))
-                return pic;
+        return photosByPath.get(normalizePath(path));
+    }
+
+    /**
+     * get the paths of the photos in a folder and its sub folders, this can be called from any thread
+     *
+     * @param folder the path of the folder
+     * @return the normalized paths of the photos in the folder
+     */
+    public List<String> getPhotoPathsIn(String folder) {
+        String prefix = normalizePath(folder);
+        if (!prefix.endsWith(File.separator))
+            prefix += File.separator;
+        List<String> paths = new ArrayList<>();
+        for (String path : photosByPath.tailMap(prefix).keySet()) {
+            if (!path.startsWith(prefix))
+                break;
+            paths.add(path);
+        }
+        return paths;
+    }
+
+    /**
+     * get the photo object in the database by its id
+     *
+     * @param id the id of the photo object
+     * @return the photo object, null if no photo in the database has this id
+     */
+    public Photo getPhoto(int id) {
+        return id >= 0 && id < photosById.length ? photosById[id] : null;
+    }
+
+    /**
+     * get the ids of all the photos in the database
+     * Note: the returned set is the index itself and should not be modified
+     *
+     * @return the set of photo ids
+     */
+    PhotoBitmap getAllPhotoIds() {
+        return allPhotoIds;
+    }
+
+    /**
+     * add the photo to the id index and make sure no new photo is given the same id
+     *
+     * @param photo    the photo object
+     * @param position the index of the photo in allPhotos
+     */
+    private void indexPhotoId(Photo photo, int position) {
+        int id = photo.getId();
+        if (id >= photosById.length) {
+            photosById = Arrays.copyOf(photosById, Math.max(id + 1, photosById.length * 2));
+            photoPositions = Arrays.copyOf(photoPositions, photosById.length);
+        }
+        photosById[id] = photo;
+        photoPositions[id] = position;
+        allPhotoIds.add(id);
+        Photo.reserveId(id);
+    }
+
+    /**
+     * set the path and the tags of a photo to the state that was saved in the journal, the photo is added
+     * if the database does not have it. The photo file is not moved
+     *
+     * @param id   the id of the photo
+     * @param path the saved path of the photo
+     * @param tags the saved tags of the photo
+     */
+    void restorePhoto(int id, String path, TagSet tags) {
+        Photo photo = getPhoto(id);
+        if (photo == null) {
+            addPhoto(new Photo(id, path, tags));
+            return;
+        }
+        String oldPath = photo.getDirectory();
+        indexPhotoTags(photo, -1);
+        photo.restore(path, tags);
+        indexPhotoTags(photo, 1);
+        reindexPhoto(photo, oldPath);
+    }
+
+    /**
+     * set the path and the tags of a photo after its file is renamed outside the application, the file is not
+     * moved. The tags are added to the existing tags and the new set of tags is logged
+     *
+     * @param photo the photo object in the database
+     * @param path  the new path of the photo
+     * @param tags  the tags in the new file name
+     */
+    public void relocatePhoto(Photo photo, String path, List<Tag> tags) {
+        addAllCurrentExistingTags(tags);
+        restorePhoto(photo.getId(), path, tagSetStore.intern(tags));
+        addTagLog(photo, tags);
+    }
+
+    /**
+     * move the photo to its new path in the path index, called whenever a photo file is renamed or moved
+     *
+     * @param photo   the photo object that has been renamed
+     * @param oldPath the path of the photo before it is renamed
+     */
+    void reindexPhoto(Photo photo, String oldPath) {
+        if (photosByPath.remove(normalizePath(oldPath), photo)) {
+            photosByPath.put(normalizePath(photo.getDirectory()), photo);
+            notifyChanged(DatabaseChange.photoRenamed(photo, oldPath));
         }
-        return null;
     }
 
     /**
@@ -216,23 +450,289 @@ public class Database extends Observable implements Serializable {
      * @return if the tag is a garbage
      */
     public boolean isGarbageTag(Tag tag) {
-        int counter = allPhotos.size();
-        for (Photo photo : allPhotos) {
-            if (!photo.getCurrentTags().contains(tag)) {
-                counter--;
+        return getTagUsage(tag) <= 0;
+    }
+
+    /**
+     * get the number of photos in the database that have this tag
+     *
+     * @param tag the tag object
+     * @return the number of photos that have this tag
+     */
+    public int getTagUsage(Tag tag) {
+        int id = tag.getId();
+        return id < tagUsage.length ? tagUsage[id] : 0;
+    }
+
+    /**
+     * delete every tag that no photo in the database has in one pass
+     * the observers are notified once with all the removed tags
+     */
+    public void purgeUnusedTags() {
+        beginBatch();
+        Iterator<Tag> tags = currentExistingTags.values().iterator();
+        while (tags.hasNext()) {
+            Tag tag = tags.next();
+            if (isGarbageTag(tag)) {
+                tags.remove();
+                notifyChanged(DatabaseChange.tagRemoved(tag));
             }
         }
-        return counter <= 0;
+        endBatchAndNotify();
+    }
+
+    /**
+     * update the posting list and the usage of the tag after it is added to or deleted from a photo
+     * Only the photos that are in the database are indexed, so a photo that is never added to the database
+     * is not in the posting lists
+     *
+     * @param photo  the photo object that the tag is added to or deleted from
+     * @param tag    the tag object
+     * @param change 1 if the tag is added to the photo, -1 if the tag is deleted from the photo
+     */
+    void updateTagIndex(Photo photo, Tag tag, int change) {
+        if (photosByPath.get(normalizePath(photo.getDirectory())) == photo) {
+            if (change > 0)
+                getPostings(tag.getId()).add(photo.getId());
+            else
+                getPostings(tag.getId()).remove(photo.getId());
+            countTagUsage(tag.getId(), change);
+        }
+    }
+
+    /**
+     * add the photo to (or remove the photo from) the posting lists and the usage counters of all its tags
+     *
+     * @param photo  the photo object
+     * @param change 1 if the photo is added to the database, -1 if the photo is removed from the database
+     */
+    private void indexPhotoTags(Photo photo, int change) {
+        TagSet tags = photo.getCurrentTags();
+        for (int i = 0; i < tags.size(); i++) {
+            int tagId = tags.getTagId(i);
+            if (change > 0)
+                getPostings(tagId).add(photo.getId());
+            else
+                getPostings(tagId).remove(photo.getId());
+            countTagUsage(tagId, change);
+        }
+    }
+
+    /**
+     * get the posting list of the tag, the ids of the photos in this database that have the tag
+     * Note: the returned set is the index itself and should not be modified
+     *
+     * @param tagId the tag id
+     * @return the set of photo ids
+     */
+    PhotoBitmap getPostings(int tagId) {
+        if (tagId >= postings.length) {
+            postings = Arrays.copyOf(postings, Math.max(tagId + 1, postings.length * 2));
+        }
+        if (postings[tagId] == null) {
+            postings[tagId] = new PhotoBitmap();
+        }
+        return postings[tagId];
+    }
+
+    /**
+     * add the change to the usage counter of the tag
+     *
+     * @param id     the tag id
+     * @param change the number to add to the counter
+     */
+    private void countTagUsage(int id, int change) {
+        if (id >= tagUsage.length) {
+            tagUsage = Arrays.copyOf(tagUsage, Math.max(id + 1, tagUsage.length * 2));
+        }
+        tagUsage[id] += change;
     }
 
     /**
      * get a list of old set of tags for a particular photo
      *
      * @param photo the photo object that need to retrieve old tag sets
-     * @return a list of old tag sets
+     * @return a read-only list of old tag sets, null if the photo is not in the database
+     */
+    public List<TagSet> getTagLog(Photo photo) {
+        int[] setIds = photo == null ? null : tagLogs.get(photo.getId());
+        if (setIds == null)
+            return null;
+        return new AbstractList<TagSet>() {
+            @Override
+            public TagSet get(int index) {
+                return tagSetStore.get(setIds[index]);
+            }
+
+            @Override
+            public int size() {
+                return setIds.length;
+            }
+        };
+    }
+
+    /**
+     * get the ids of the tag sets in the tag log of the photo
+     * Note: the returned array is never changed, a new array is made when a tag set is logged,
+     * so it can be read by another thread
+     *
+     * @param photo the photo object in the database
+     * @return the ids of the logged tag sets in the tag set store
+     */
+    int[] getTagLogIds(Photo photo) {
+        return tagLogs.get(photo.getId());
+    }
+
+    /**
+     * add a set of tags to the tag log of the photo if the photo never had this set of tags
+     * the observers are told which set is logged, so they can add it to the old tag sets they show
+     *
+     * @param photo the photo object in the database
+     * @param tags  the set of tags
+     * @return true if the set of tags is added to the log
+     */
+    public boolean addTagLog(Photo photo, Collection<Tag> tags) {
+        int[] setIds = tagLogs.get(photo.getId());
+        if (setIds == null)
+            return false;
+        TagSet tagSet = tags instanceof TagSet ? (TagSet) tags : tagSetStore.intern(tags);
+        if (!appendTagLog(photo.getId(), setIds, tagSet.getId()))
+            return false;
+        notifyChanged(DatabaseChange.tagSetLogged(photo, tagSet));
+        return true;
+    }
+
+    /**
+     * add the id of a tag set to the tag log of the photo if the log does not have it, without notifying
+     *
+     * @param photoId the id of the photo
+     * @param setIds  the current tag log of the photo
+     * @param setId   the id of the tag set
+     * @return true if the tag set is added to the log
+     */
+    private boolean appendTagLog(int photoId, int[] setIds, int setId) {
+        for (int id : setIds) {
+            if (id == setId)
+                return false;
+        }
+        int[] updated = Arrays.copyOf(setIds, setIds.length + 1);
+        updated[setIds.length] = setId;
+        tagLogs.put(photoId, updated);
+        return true;
+    }
+
+    /**
+     * add all the photos, existing tags and tag logs of a loaded database to this database at once
+     * The indexes are built in one pass over the photos and the observers are notified once with the new tags
+     * and a CATALOG_LOADED change instead of once for every photo and tag set.
+     * A photo that is already in this database keeps its state and gets the tag sets of the loaded log
+     *
+     * @param loaded the database that was read from the catalog
+     */
+    public void loadCatalog(Database loaded) {
+        loadCatalog(loaded, 0, loaded.allPhotos.size());
+    }
+
+    /**
+     * add the existing tags and a range of the photos of a loaded database to this database
+     * A large catalog is added in several ranges, so that the GUI can show the photos that are added so far
+     * between the ranges. The existing tags are added with the first range. The observers are notified once
+     * for each range with a TAG_ADDED change for every new tag and a CATALOG_LOADED change, so they only
+     * update what the range added
+     *
+     * @param loaded the database that was read from the catalog
+     * @param from   the index of the first photo to add, inclusive
+     * @param to     the index of the last photo to add, exclusive
+     */
+    public void loadCatalog(Database loaded, int from, int to) {
+        beginBatch();
+        if (from == 0) {
+            for (Tag tag : loaded.currentExistingTags.values()) {
+                if (currentExistingTags.putIfAbsent(tag.getId(), tag) == null)
+                    notifyChanged(DatabaseChange.tagAdded(tag));
+            }
+        }
+        for (Photo photo : loaded.allPhotos.subList(from, to)) {
+            int[] loadedLog = loaded.tagLogs.get(photo.getId());
+            Photo existing = getPhoto(photo.getId());
+            if (existing == null && photosByPath.putIfAbsent(normalizePath(photo.getDirectory()), photo) == null) {
+                allPhotos.add(photo);
+                indexPhotoId(photo, allPhotos.size() - 1);
+                indexPhotoTags(photo, 1);
+                // the tag log arrays are never changed in place, so they can be shared
+                tagLogs.put(photo.getId(), loadedLog);
+            } else if (existing != null) {
+                for (int setId : loadedLog) {
+                    appendTagLog(existing.getId(), tagLogs.get(existing.getId()), setId);
+                }
+            }
+        }
+        notifyChanged(DatabaseChange.catalogLoaded());
+        endBatchAndNotify();
+    }
+
+    /**
+     * end a batch of changes that this database started and send its changes to the observers as one list
+     * nothing is sent if an outer batch is still open, its caller sends the changes
+     */
+    private void endBatchAndNotify() {
+        List<DatabaseChange> changes = endBatch();
+        if (!changes.isEmpty()) {
+            setChanged();
+            notifyObservers(changes);
+        }
+    }
+
+    /**
+     * start a batch of changes, the observers are not notified until the outermost batch ends
+     */
+    void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * end a batch of changes
+     * the observers are not notified here, the caller sends one event for the whole batch instead
+     *
+     * @return the changes in the order they were made if this is the outermost batch, else an empty list
+     */
+    List<DatabaseChange> endBatch() {
+        if (batchDepth == 0)
+            throw new IllegalStateException("No batch is open");
+        if (--batchDepth > 0)
+            return Collections.emptyList();
+        List<DatabaseChange> changes = batchChanges;
+        batchChanges = new ArrayList<>();
+        return changes;
+    }
+
+    /**
+     * notify the observers about a change, or remember the change if a batch is open
+     *
+     * @param change the change of the database
+     */
+    private void notifyChanged(DatabaseChange change) {
+        if (batchDepth > 0) {
+            batchChanges.add(change);
+        } else {
+            setChanged();
+            notifyObservers(change);
+        }
+    }
+
+    /**
+     * remove all the photos, tags and tag logs from the database
      */
-    public List<HashSet<Tag>> getTagLog(Photo photo) {
-        return tagLogs.get(photo);
+    public void clear() {
+        allPhotos.clear();
+        photosByPath.clear();
+        Arrays.fill(photosById, null);
+        allPhotoIds.clear();
+        currentExistingTags.clear();
+        tagLogs.clear();
+        Arrays.fill(tagUsage, 0);
+        Arrays.fill(postings, null);
+        notifyChanged(DatabaseChange.cleared());
     }
 
 }
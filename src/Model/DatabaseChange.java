@@ -0,0 +1,220 @@
+package Model;
+
+/**
+ * a change of the database that is sent to the observers, so that they can update only what is changed
+ * Outside a batch the database sends one change at a time. A committed batch sends a list of changes,
+ * where all the renames of a photo during the batch are merged into one rename
+ *
+ * @author Yuan Xu, Shiyi Tao
+ * @version 2.0
+ * @since 2017-11-30
+ */
+public class DatabaseChange {
+
+    /**
+     * the kinds of changes
+     */
+    public enum Type {
+        /**
+         * a photo is added to the database
+         */
+        PHOTO_ADDED,
+        /**
+         * a photo file is renamed or moved, usually because its tags are changed
+         */
+        PHOTO_RENAMED,
+        /**
+         * a photo is removed from the database because its file is gone
+         */
+        PHOTO_REMOVED,
+        /**
+         * a tag is added to the existing tags
+         */
+        TAG_ADDED,
+        /**
+         * a tag is deleted from the existing tags
+         */
+        TAG_REMOVED,
+        /**
+         * a set of tags is added to the tag log of a photo
+         */
+        TAG_SET_LOGGED,
+        /**
+         * everything is removed from the database
+         */
+        CLEARED,
+        /**
+         * a catalog or a range of its photos is added to the database at once
+         */
+        CATALOG_LOADED
+    }
+
+    /**
+     * the kind of this change
+     */
+    private final Type type;
+    /**
+     * the changed photo, null if the change is not about a photo
+     */
+    private final Photo photo;
+    /**
+     * the changed tag, null if the change is not about a tag
+     */
+    private final Tag tag;
+    /**
+     * the logged tag set, null if the change is not a logged tag set
+     */
+    private final TagSet tagSet;
+    /**
+     * the path of the photo before it is renamed, null if the change is not a rename
+     */
+    private final String oldPath;
+
+    /**
+     * create a change
+     *
+     * @param type    the kind of the change
+     * @param photo   the changed photo
+     * @param tag     the changed tag
+     * @param tagSet  the logged tag set
+     * @param oldPath the path of the photo before it is renamed
+     */
+    private DatabaseChange(Type type, Photo photo, Tag tag, TagSet tagSet, String oldPath) {
+        this.type = type;
+        this.photo = photo;
+        this.tag = tag;
+        this.tagSet = tagSet;
+        this.oldPath = oldPath;
+    }
+
+    /**
+     * a photo is added to the database
+     *
+     * @param photo the new photo
+     * @return the change
+     */
+    static DatabaseChange photoAdded(Photo photo) {
+        return new DatabaseChange(Type.PHOTO_ADDED, photo, null, null, null);
+    }
+
+    /**
+     * a photo is renamed or moved
+     *
+     * @param photo   the photo that already has its new path
+     * @param oldPath the path of the photo before it is renamed
+     * @return the change
+     */
+    static DatabaseChange photoRenamed(Photo photo, String oldPath) {
+        return new DatabaseChange(Type.PHOTO_RENAMED, photo, null, null, oldPath);
+    }
+
+    /**
+     * a photo is removed from the database
+     *
+     * @param photo the removed photo
+     * @return the change
+     */
+    static DatabaseChange photoRemoved(Photo photo) {
+        return new DatabaseChange(Type.PHOTO_REMOVED, photo, null, null, null);
+    }
+
+    /**
+     * a tag is added to the existing tags
+     *
+     * @param tag the new tag
+     * @return the change
+     */
+    static DatabaseChange tagAdded(Tag tag) {
+        return new DatabaseChange(Type.TAG_ADDED, null, tag, null, null);
+    }
+
+    /**
+     * a tag is deleted from the existing tags
+     *
+     * @param tag the deleted tag
+     * @return the change
+     */
+    static DatabaseChange tagRemoved(Tag tag) {
+        return new DatabaseChange(Type.TAG_REMOVED, null, tag, null, null);
+    }
+
+    /**
+     * a set of tags is added to the tag log of a photo
+     *
+     * @param photo  the photo of the tag log
+     * @param tagSet the logged tag set
+     * @return the change
+     */
+    static DatabaseChange tagSetLogged(Photo photo, TagSet tagSet) {
+        return new DatabaseChange(Type.TAG_SET_LOGGED, photo, null, tagSet, null);
+    }
+
+    /**
+     * everything is removed from the database
+     *
+     * @return the change
+     */
+    static DatabaseChange cleared() {
+        return new DatabaseChange(Type.CLEARED, null, null, null, null);
+    }
+
+    /**
+     * a whole catalog is added to the database at once
+     *
+     * @return the change
+     */
+    static DatabaseChange catalogLoaded() {
+        return new DatabaseChange(Type.CATALOG_LOADED, null, null, null, null);
+    }
+
+    /**
+     * get the kind of this change
+     *
+     * @return the kind of this change
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * get the changed photo
+     *
+     * @return the photo, null if the change is not about a photo
+     */
+    public Photo getPhoto() {
+        return photo;
+    }
+
+    /**
+     * get the changed tag
+     *
+     * @return the tag, null if the change is not about a tag
+     */
+    public Tag getTag() {
+        return tag;
+    }
+
+    /**
+     * get the logged tag set
+     *
+     * @return the tag set, null if the change is not a logged tag set
+     */
+    public TagSet getTagSet() {
+        return tagSet;
+    }
+
+    /**
+     * get the path of the photo before it is renamed
+     *
+     * @return the old path, null if the change is not a rename
+     */
+    public String getOldPath() {
+        return oldPath;
+    }
+
+    @Override
+    public String toString() {
+        return type + (photo != null ? " " + photo : "") + (tag != null ? " " + tag : "")
+                + (tagSet != null ? " " + tagSet : "");
+    }
+}
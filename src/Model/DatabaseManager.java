@@ -1,12 +1,18 @@
 package Model;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Observable;
+import java.util.Set;
 
 /**
  * the business logic for the database
+ * Tag changes can be grouped into a batch with beginBatch and commitBatch, the tag logs of the changed photos
+ * are written and the observers are notified only once when the batch is committed, with the list of
+ * changes made during the batch
  *
  * @author Yuan Xu, Shiyi Tao
  * @version 2.0
@@ -22,6 +28,18 @@ public class DatabaseManager extends Observable {
      * a singleton database object
      */
     private Database db = Database.getDatabase();
+    /**
+     * the number of open batches, batches can be nested and only the outermost commit applies them
+     */
+    private int batchDepth;
+    /**
+     * the photos changed in the open batch
+     */
+    private Set<Photo> changedPhotos = new LinkedHashSet<>();
+    /**
+     * the tags deleted from photos in the open batch, they are deleted from the database on commit if unused
+     */
+    private Set<Tag> deletedTags = new LinkedHashSet<>();
 
     /**
      * get the databaseManager object
@@ -33,38 +51,75 @@ public class DatabaseManager extends Observable {
     }
 
     /**
-     * replace all the tag in the photo with a new set of tags
-     *
-     * @param photo a photo object
-     * @param tags  a new list of tags
+     * start a batch of tag changes
+     * Every beginBatch must be followed by a commitBatch, usually in a finally block
      */
-    public void replaceAllTags(Photo photo, List<Tag> tags) {
-        HashSet<Tag> currentTags = new HashSet<>(photo.getCurrentTags());
-        String oldName = photo.getNameWithExtension();
-        for (Tag tag : currentTags) {
-            photo.deleteTag(tag);
+    public void beginBatch() {
+        if (batchDepth++ == 0)
+            db.beginBatch();
+    }
+
+    /**
+     * commit the batch of tag changes
+     * The tag logs of all the changed photos are written, the unused tags are deleted from the database
+     * and the observers are notified once with the list of changes of the database
+     */
+    public void commitBatch() {
+        if (batchDepth == 0)
+            throw new IllegalStateException("No batch is open");
+        if (--batchDepth > 0)
+            return;
+        for (Photo photo : changedPhotos) {
+            logTags(photo);
+        }
+        for (Tag tag : deletedTags) {
             db.deleteCurrentExistingTag(tag);
         }
-        addTags(photo, tags, oldName);
+        changedPhotos.clear();
+        deletedTags.clear();
+        List<DatabaseChange> changes = mergeRenames(db.endBatch());
+        if (!changes.isEmpty()) {
+            // use the observer pattern here
+            setChanged();
+            notifyObservers(changes);
+        }
     }
 
     /**
-     * add a list of tags into the database
+     * keep only the first rename of each photo, a photo is renamed once for every tag that is added or deleted
+     * The first rename has the path of the photo before the batch and the photo already has its final path
      *
-     * @param photo   the photo object
-     * @param tags    a list of tags
-     * @param oldName the old name of the photo
+     * @param changes the changes of the database in a batch
+     * @return the changes with one rename for each renamed photo
      */
-    private void addTags(Photo photo, List<Tag> tags, String oldName) {
-        for (Tag tag : tags) {
-            // add the tag into the photo object
-            photo.addTag(tag);
-            db.addCurrentExistingTag(tag);
+    private List<DatabaseChange> mergeRenames(List<DatabaseChange> changes) {
+        List<DatabaseChange> merged = new ArrayList<>(changes.size());
+        Set<Photo> renamed = new HashSet<>();
+        for (DatabaseChange change : changes) {
+            if (change.getType() != DatabaseChange.Type.PHOTO_RENAMED || renamed.add(change.getPhoto()))
+                merged.add(change);
+        }
+        return merged;
+    }
+
+    /**
+     * replace all the tag in the photo with a new set of tags
+     *
+     * @param photo a photo object
+     * @param tags  a new list of tags
+     */
+    public void replaceAllTags(Photo photo, List<Tag> tags) {
+        beginBatch();
+        try {
+            changedPhotos.add(photo);
+            List<Tag> oldTags = new ArrayList<>(photo.getCurrentTags());
+            // the photo file is renamed once for all the deleted and added tags
+            photo.changeTags(tags, oldTags);
+            deletedTags.addAll(oldTags);
+            db.addAllCurrentExistingTags(tags);
+        } finally {
+            commitBatch();
         }
-        logTags(photo);
-        // use the observer pattern here
-        setChanged();
-        notifyObservers(dataMaps(oldName, photo.getNameWithExtension()));
     }
 
     /**
@@ -74,17 +129,15 @@ public class DatabaseManager extends Observable {
      * @param tags  a list of tags
      */
     public void addTags(Photo photo, List<Tag> tags) {
-        String oldName = photo.getNameWithExtension();
-        for (Tag tag : tags) {
-            // add the tag into the photo object
-            photo.addTag(tag);
-            db.addCurrentExistingTag(tag);
+        beginBatch();
+        try {
+            changedPhotos.add(photo);
+            // add the tags into the photo object, the photo file is renamed once
+            photo.changeTags(tags, Collections.emptyList());
+            db.addAllCurrentExistingTags(tags);
+        } finally {
+            commitBatch();
         }
-        logTags(photo);
-
-        // use the observer pattern here
-        setChanged();
-        notifyObservers(dataMaps(oldName, photo.getNameWithExtension()));
     }
 
     /**
@@ -94,15 +147,14 @@ public class DatabaseManager extends Observable {
      * @param tags  a list of tags to be deleted from the photo
      */
     public void deleteTags(Photo photo, List<Tag> tags) {
-        String oldName = photo.getNameWithExtension();
-        for (Tag tag : tags) {
-            photo.deleteTag(tag);
-            db.deleteCurrentExistingTag(tag);
+        beginBatch();
+        try {
+            changedPhotos.add(photo);
+            photo.changeTags(Collections.emptyList(), tags);
+            deletedTags.addAll(tags);
+        } finally {
+            commitBatch();
         }
-        logTags(photo);
-        // use the observer pattern here
-        setChanged();
-        notifyObservers(dataMaps(oldName, photo.getNameWithExtension()));
     }
 
     /**
@@ -111,28 +163,7 @@ public class DatabaseManager extends Observable {
      * @param photo the photo object in the database
      */
     private void logTags(Photo photo) {
-        // get all old tag sets from the photo in the database
-        List<HashSet<Tag>> tagSets = db.getTagLog(photo);
-        // get all current tags from this photo
-        HashSet<Tag> updatedTagSet = new HashSet<>(photo.getCurrentTags());
-        // Log the tag set into the database
-        if (!tagSets.contains(updatedTagSet)) {
-            tagSets.add(updatedTagSet);
-        }
-    }
-
-
-    /**
-     * A helper function to gather name information in order to pass it to the observers
-     *
-     * @param oldName the old name of the photo object
-     * @param newName the new name of the photo object
-     * @return the hashmap that contains the old name and new name data
-     */
-    private HashMap<String, String> dataMaps(String oldName, String newName) {
-        HashMap<String, String> data = new HashMap<>();
-        data.put("oldName", oldName);
-        data.put("newName", newName);
-        return data;
+        // Log the current tag set into the database if the photo never had it
+        db.addTagLog(photo, photo.getCurrentTags());
     }
 }
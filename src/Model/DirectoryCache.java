@@ -0,0 +1,319 @@
+package Model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * a cache of the fingerprints and the contents of the scanned folders using singleton pattern
+ * The fingerprint of a folder is its modified time, the number of its entries and a hash of their names.
+ * The scanner does not list a folder again if its modified time did not change, it uses the image files and the
+ * sub folders that are in the cache instead. If only the modified time changed, the names are compared with the
+ * hash, and if they are the same, no entry of the folder is read again. Otherwise only the new names are read
+ * <p>
+ * A folder that was changed in the last RACY_MILLIS when it was read is saved without its modified time,
+ * since a change in the same tick of the clock would not change it. Such a folder is listed again next time
+ * <p>
+ * The cache file is the MAGIC, the VERSION, the folders and the CRC32 of the folders. It is written to a
+ * temporary file first, so a crash leaves the old cache file
+ *
+ * @author Jianzhong You, Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+public class DirectoryCache {
+
+    /**
+     * the first four bytes of a cache file, "IVDC"
+     */
+    private static final int MAGIC = 0x49564443;
+    /**
+     * the version of the cache format
+     */
+    private static final int VERSION = 1;
+    /**
+     * a folder changed this shortly before it is read is listed again next time
+     */
+    private static final long RACY_MILLIS = 2000;
+    /**
+     * the modified time of a folder that is listed again next time
+     */
+    static final long UNKNOWN_TIME = Long.MIN_VALUE;
+
+    /**
+     * the singleton directoryCache object
+     */
+    private static final DirectoryCache DIRECTORY_CACHE = new DirectoryCache();
+
+    /**
+     * the cache file, null if the cache is not open
+     */
+    private volatile File file;
+    /**
+     * the cached folders by their absolute path
+     */
+    private final Map<String, Folder> folders = new ConcurrentHashMap<>();
+    /**
+     * if a folder is changed since the cache file was written
+     */
+    private volatile boolean changed;
+
+    /**
+     * get the singleton directoryCache object
+     *
+     * @return the only directoryCache object
+     */
+    public static DirectoryCache getDirectoryCache() {
+        return DIRECTORY_CACHE;
+    }
+
+    /**
+     * read the cache file and use it in the scans from now on
+     * if the cache file cannot be read, the cache starts empty and every folder is listed again
+     *
+     * @param file the cache file, it is created when the cache is saved
+     * @throws IOException if the cache file exists but cannot be read
+     */
+    public synchronized void open(File file) throws IOException {
+        folders.clear();
+        changed = false;
+        this.file = file;
+        if (!file.exists())
+            return;
+        CRC32 checksum = new CRC32();
+        // the checksum is outside the buffer, so it only covers the bytes that are read
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(file)), checksum))) {
+            if (in.readInt() != MAGIC || in.readInt() > VERSION)
+                throw new IOException(file + " is not a folder cache file");
+            int count = CatalogFormat.readCount(in);
+            Map<String, Folder> read = new ConcurrentHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String path = CatalogFormat.readString(in);
+                long modified = in.readLong();
+                int entryCount = CatalogFormat.readCount(in);
+                long nameHash = in.readLong();
+                read.put(path, new Folder(modified, entryCount, nameHash, readNames(in), readNames(in)));
+            }
+            int expectedChecksum = (int) checksum.getValue();
+            if (in.readInt() != expectedChecksum)
+                throw new IOException(file + " is corrupted");
+            folders.putAll(read);
+        }
+    }
+
+    /**
+     * write the cache file if a folder is changed since it was last written
+     *
+     * @throws IOException if the cache file cannot be written
+     */
+    public synchronized void save() throws IOException {
+        if (file == null || !changed)
+            return;
+        changed = false;
+        File temporary = new File(file.getPath() + ".tmp");
+        CRC32 checksum = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(new FileOutputStream(temporary), checksum)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            // the folders that are added while the file is written are saved next time
+            Map<String, Folder> copy = new HashMap<>(folders);
+            CatalogFormat.writeVarint(out, copy.size());
+            for (Map.Entry<String, Folder> entry : copy.entrySet()) {
+                Folder folder = entry.getValue();
+                CatalogFormat.writeString(out, entry.getKey());
+                out.writeLong(folder.modified);
+                CatalogFormat.writeVarint(out, folder.entryCount);
+                out.writeLong(folder.nameHash);
+                writeNames(out, folder.images);
+                writeNames(out, folder.subFolders);
+            }
+            out.flush();
+            out.writeInt((int) checksum.getValue());
+        } catch (IOException e) {
+            changed = true;
+            throw e;
+        }
+        Files.move(temporary.toPath(), file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+
+    /**
+     * save the cache file and stop using the cache
+     */
+    public synchronized void close() {
+        try {
+            save();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        file = null;
+        folders.clear();
+    }
+
+    /**
+     * get the cached contents of a folder
+     *
+     * @param folder the folder
+     * @return the cached folder, null if the cache is not open or the folder is not cached
+     */
+    Folder get(Path folder) {
+        return file == null ? null : folders.get(key(folder));
+    }
+
+    /**
+     * cache the contents of a folder that was just listed, nothing happens if the cache is not open
+     *
+     * @param folder     the folder
+     * @param modified   the modified time of the folder in milliseconds, read before it was listed
+     * @param names      the sorted names of all the entries of the folder
+     * @param images     the names of the image files
+     * @param subFolders the names of the sub folders
+     */
+    void put(Path folder, long modified, List<String> names, List<String> images, List<String> subFolders) {
+        if (file == null)
+            return;
+        if (System.currentTimeMillis() - modified < RACY_MILLIS)
+            modified = UNKNOWN_TIME;
+        folders.put(key(folder), new Folder(modified, names.size(), hashNames(names),
+                images.toArray(new String[0]), subFolders.toArray(new String[0])));
+        changed = true;
+    }
+
+    /**
+     * forget a folder that is deleted
+     *
+     * @param folder the folder
+     */
+    void remove(Path folder) {
+        if (file != null && folders.remove(key(folder)) != null)
+            changed = true;
+    }
+
+    /**
+     * get the key of a folder in the cache
+     *
+     * @param folder the folder
+     * @return the absolute normalized path of the folder
+     */
+    private static String key(Path folder) {
+        return folder.toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * hash the names of the entries of a folder with 64 bit FNV-1a, a line break separates the names
+     *
+     * @param names the sorted names
+     * @return the hash of the names
+     */
+    static long hashNames(List<String> names) {
+        long hash = 0xcbf29ce484222325L;
+        for (String name : names) {
+            for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+            }
+            hash = (hash ^ '\n') * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * write a list of names
+     *
+     * @param out   the output
+     * @param names the names
+     * @throws IOException if the output cannot be written
+     */
+    private static void writeNames(DataOutputStream out, String[] names) throws IOException {
+        CatalogFormat.writeVarint(out, names.length);
+        for (String name : names) {
+            CatalogFormat.writeString(out, name);
+        }
+    }
+
+    /**
+     * read a list of names that was written by writeNames
+     *
+     * @param in the input
+     * @return the names
+     * @throws IOException if the input cannot be read
+     */
+    private static String[] readNames(DataInputStream in) throws IOException {
+        String[] names = new String[CatalogFormat.readCount(in)];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = CatalogFormat.readString(in);
+        }
+        return names;
+    }
+
+    /**
+     * the fingerprint and the contents of a folder when it was last listed
+     */
+    static final class Folder {
+        /**
+         * the modified time of the folder in milliseconds, UNKNOWN_TIME if it has to be listed again
+         */
+        final long modified;
+        /**
+         * the number of entries in the folder
+         */
+        final int entryCount;
+        /**
+         * the hash of the sorted names of the entries
+         */
+        final long nameHash;
+        /**
+         * the names of the image files in the folder
+         */
+        final String[] images;
+        /**
+         * the names of the sub folders
+         */
+        final String[] subFolders;
+
+        /**
+         * create a cached folder
+         *
+         * @param modified   the modified time of the folder
+         * @param entryCount the number of entries in the folder
+         * @param nameHash   the hash of the sorted names of the entries
+         * @param images     the names of the image files
+         * @param subFolders the names of the sub folders
+         */
+        Folder(long modified, int entryCount, long nameHash, String[] images, String[] subFolders) {
+            this.modified = modified;
+            this.entryCount = entryCount;
+            this.nameHash = nameHash;
+            this.images = images;
+            this.subFolders = subFolders;
+        }
+
+        /**
+         * check if the folder has the same entries as when it was listed
+         *
+         * @param names the sorted names of the entries of the folder now
+         * @return if the number and the hash of the names are the same
+         */
+        boolean hasNames(List<String> names) {
+            return entryCount == names.size() && nameHash == hashNames(names);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package Model;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * a scanner that finds the image files in folders using singleton pattern
+ * Every folder is read with a DirectoryStream by its own fork join task, so the sub folders are read in parallel,
+ * which matters most on network drives where every folder read waits for the server.
+ * A folder that is reached twice through a link is only read once, and a folder that cannot be read is skipped.
+ * When the DirectoryCache is open, a folder that did not change since the last scan is not listed again and
+ * only its sub folders are read, so a scan of an unchanged tree reads one attribute per folder. When the image
+ * files are passed on as they are found, the ones of an unchanged folder that are already in the database are
+ * left out, so a re-import only reports what changed
+ *
+ * @author Jianzhong You, Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+public class DirectoryScanner {
+
+    /**
+     * the singleton directoryScanner object
+     */
+    private static final DirectoryScanner DIRECTORY_SCANNER = new DirectoryScanner();
+    /**
+     * the threads that read the folders, more than the processors since they mostly wait for the disk
+     */
+    private static final ForkJoinPool POOL =
+            new ForkJoinPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+    /**
+     * the fingerprints and the contents of the folders of the last scans
+     */
+    private final DirectoryCache cache = DirectoryCache.getDirectoryCache();
+
+    /**
+     * get the singleton directoryScanner object
+     *
+     * @return the only directoryScanner object
+     */
+    public static DirectoryScanner getDirectoryScanner() {
+        return DIRECTORY_SCANNER;
+    }
+
+    /**
+     * check if a file name has one of the image extensions of the database
+     *
+     * @param fileName the name of a file
+     * @return if the file name is the name of an image file
+     */
+    public boolean isImageFile(String fileName) {
+        String name = fileName.toLowerCase();
+        for (String extension : Database.getDatabase().getAcceptableImageExtensions()) {
+            if (name.endsWith(extension))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * find the image files among the paths
+     * An image file in the paths is found, and if recursive is true, so are the image files everywhere in the
+     * folders in the paths. The folders are read in parallel before the stream is returned, the paths in the
+     * stream are in the order of the given paths and each folder is sorted by name
+     *
+     * @param paths     files and folders
+     * @param recursive if the folders are searched
+     * @return the image files without duplicates
+     */
+    public Stream<Path> scan(List<Path> paths, boolean recursive) {
+        return scan(paths, recursive, () -> false);
+    }
+
+    /**
+     * find the image files among the paths, and stop reading folders once the scan is cancelled
+     *
+     * @param paths     files and folders
+     * @param recursive if the folders are searched
+     * @param cancelled tells if the scan is cancelled, it is checked before each folder is read
+     * @return the image files without duplicates, only the ones found before the scan was cancelled
+     */
+    public Stream<Path> scan(List<Path> paths, boolean recursive, BooleanSupplier cancelled) {
+        return scanPaths(paths, recursive, cancelled, null).stream().distinct();
+    }
+
+    /**
+     * find the image files among the paths and pass each one on as soon as its folder is read
+     * The folders are read in parallel, so the image files are passed on from several threads and in no
+     * particular order. An image file of a folder that did not change since the last scan is only passed on
+     * if it is not in the database. This returns when every folder is read or the scan is cancelled
+     *
+     * @param paths     files and folders
+     * @param recursive if the folders are searched
+     * @param cancelled tells if the scan is cancelled, it is checked before each folder is read
+     * @param found     is given every new or changed image file once, it must be safe to call from several
+     *                  threads
+     */
+    public void scan(List<Path> paths, boolean recursive, BooleanSupplier cancelled, Consumer<Path> found) {
+        Set<Path> reported = ConcurrentHashMap.newKeySet();
+        scanPaths(paths, recursive, cancelled, image -> {
+            if (reported.add(image))
+                found.accept(image);
+        });
+    }
+
+    /**
+     * read the folders among the paths in parallel
+     *
+     * @param paths     files and folders
+     * @param recursive if the folders are searched
+     * @param cancelled tells if the scan is cancelled
+     * @param found     is given every image file as its folder is read, null to collect the image files instead
+     * @return the collected image files in order, empty if found is not null
+     */
+    private List<Path> scanPaths(List<Path> paths, boolean recursive, BooleanSupplier cancelled,
+                                 Consumer<Path> found) {
+        Set<Object> visited = ConcurrentHashMap.newKeySet();
+        List<Path> images = new ArrayList<>();
+        List<ScanTask> folders = new ArrayList<>();
+        for (Path path : paths) {
+            BasicFileAttributes attributes = readAttributes(path);
+            if (attributes == null)
+                continue;
+            if (attributes.isRegularFile() && isImageFile(path.getFileName().toString())) {
+                if (found != null)
+                    found.accept(path);
+                else
+                    images.add(path);
+            } else if (attributes.isDirectory() && recursive && visited.add(folderKey(path, attributes))) {
+                folders.add(new ScanTask(path, attributes, visited, cancelled, found));
+            }
+        }
+        for (ScanTask folder : folders) {
+            POOL.execute(folder);
+        }
+        for (ScanTask folder : folders) {
+            images.addAll(folder.join());
+        }
+        return images;
+    }
+
+    /**
+     * read the attributes of a file, following links
+     *
+     * @param path the file
+     * @return the attributes, null if the file cannot be read
+     */
+    private static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * get a key that is the same for every path of a folder
+     *
+     * @param folder     a folder
+     * @param attributes the attributes of the folder
+     * @return the file key of the folder, or its real path if the file system has no file keys
+     */
+    private static Object folderKey(Path folder, BasicFileAttributes attributes) {
+        if (attributes.fileKey() != null)
+            return attributes.fileKey();
+        try {
+            return folder.toRealPath();
+        } catch (IOException e) {
+            return folder.toAbsolutePath().normalize();
+        }
+    }
+
+    /**
+     * a task that reads a folder and forks a task for each of its sub folders
+     */
+    private class ScanTask extends RecursiveTask<List<Path>> {
+        /**
+         * the version of the serialized form
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * the folder to read
+         */
+        private final Path folder;
+        /**
+         * the modified time of the folder in milliseconds
+         */
+        private final long modified;
+        /**
+         * the keys of the folders that are already read during this scan
+         */
+        private final Set<Object> visited;
+        /**
+         * tells if the scan is cancelled
+         */
+        private final BooleanSupplier cancelled;
+        /**
+         * is given every image file as the folder is read, null if the image files are returned instead
+         */
+        private final Consumer<Path> found;
+
+        /**
+         * create a task that reads a folder
+         *
+         * @param folder     the folder to read
+         * @param attributes the attributes of the folder
+         * @param visited    the keys of the folders that are already read during this scan
+         * @param cancelled  tells if the scan is cancelled
+         * @param found      is given every image file as the folder is read, null to return them instead
+         */
+        ScanTask(Path folder, BasicFileAttributes attributes, Set<Object> visited, BooleanSupplier cancelled,
+                 Consumer<Path> found) {
+            this.folder = folder;
+            this.modified = attributes.lastModifiedTime().toMillis();
+            this.visited = visited;
+            this.cancelled = cancelled;
+            this.found = found;
+        }
+
+        @Override
+        protected List<Path> compute() {
+            if (cancelled.getAsBoolean())
+                return Collections.emptyList();
+            List<String> imageNames = new ArrayList<>();
+            List<String> folderNames = new ArrayList<>();
+            DirectoryCache.Folder cached = cache.get(folder);
+            boolean unchanged = cached != null && cached.modified == modified;
+            if (unchanged) {
+                // the folder did not change since it was listed
+                Collections.addAll(imageNames, cached.images);
+                Collections.addAll(folderNames, cached.subFolders);
+            } else if (!list(cached, imageNames, folderNames)) {
+                return Collections.emptyList();
+            }
+
+            List<Path> images = new ArrayList<>();
+            Database database = Database.getDatabase();
+            for (String name : imageNames) {
+                Path image = folder.resolve(name);
+                if (found == null)
+                    images.add(image);
+                else if (!unchanged || !database.hasPhoto(image.toString()))
+                    found.accept(image);
+            }
+            List<ScanTask> subFolders = new ArrayList<>();
+            for (String name : folderNames) {
+                Path entry = folder.resolve(name);
+                BasicFileAttributes attributes = readAttributes(entry);
+                if (attributes != null && attributes.isDirectory() && visited.add(folderKey(entry, attributes))) {
+                    ScanTask subFolder = new ScanTask(entry, attributes, visited, cancelled, found);
+                    subFolder.fork();
+                    subFolders.add(subFolder);
+                }
+            }
+            for (ScanTask subFolder : subFolders) {
+                images.addAll(subFolder.join());
+            }
+            return images;
+        }
+
+        /**
+         * list the folder and sort its entries into image files and sub folders
+         * An entry that was in the cached folder keeps its kind, only the new entries are read.
+         * The sub folders that are gone are removed from the cache
+         *
+         * @param cached      the cached folder, null if the folder is not cached
+         * @param imageNames  the names of the image files are added here
+         * @param folderNames the names of the sub folders are added here
+         * @return false if the folder cannot be read
+         */
+        private boolean list(DirectoryCache.Folder cached, List<String> imageNames, List<String> folderNames) {
+            List<String> names = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+                for (Path entry : stream) {
+                    names.add(entry.getFileName().toString());
+                }
+            } catch (IOException e) {
+                return false;
+            }
+            Collections.sort(names);
+
+            Set<String> cachedImages = new HashSet<>();
+            Set<String> cachedFolders = new HashSet<>();
+            if (cached != null) {
+                Collections.addAll(cachedImages, cached.images);
+                Collections.addAll(cachedFolders, cached.subFolders);
+            }
+            if (cached != null && cached.hasNames(names)) {
+                // only the modified time changed, the entries are the same
+                Collections.addAll(imageNames, cached.images);
+                Collections.addAll(folderNames, cached.subFolders);
+            } else {
+                for (String name : names) {
+                    if (cachedImages.contains(name)) {
+                        imageNames.add(name);
+                    } else if (cachedFolders.contains(name)) {
+                        folderNames.add(name);
+                    } else {
+                        BasicFileAttributes attributes = readAttributes(folder.resolve(name));
+                        if (attributes == null)
+                            continue;
+                        if (attributes.isRegularFile() && isImageFile(name))
+                            imageNames.add(name);
+                        else if (attributes.isDirectory())
+                            folderNames.add(name);
+                    }
+                }
+                cachedFolders.removeAll(folderNames);
+                for (String name : cachedFolders) {
+                    cache.remove(folder.resolve(name));
+                }
+            }
+            cache.put(folder, modified, names, imageNames, folderNames);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,530 @@
+package Model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * a watcher that keeps the database in sync with the imported folders using singleton pattern
+ * Every folder under a watched root is registered with a WatchService. A watched root is registered at once, its
+ * sub folders are registered on the watcher thread, so a big tree is not walked on the thread that adds the root.
+ * The events are collected on the watcher thread until no event came for DEBOUNCE_MILLIS, or for at most MAX_DELAY_MILLIS, so a copy of many
+ * files is applied at once. The changed paths are then checked on the disk, and only the differences with the
+ * database are applied in one batch on the thread that changes the database: a new image file becomes a new
+ * photo, a photo whose file is gone is removed, and a photo whose file is renamed in the same folder keeps its
+ * history and gets the tags of its new file name.
+ * The renames of the application itself are already in the database when the events arrive, so they are ignored
+ * <p>
+ * The watched roots are saved in a file, one path per line, so they are watched again in the next run
+ *
+ * @author Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+public class FolderWatcher {
+
+    /**
+     * the changes are applied after no event came for this long
+     */
+    private static final long DEBOUNCE_MILLIS = 500;
+    /**
+     * the changes are applied at the latest this long after the first event, even if events keep coming
+     */
+    private static final long MAX_DELAY_MILLIS = 2000;
+
+    /**
+     * the singleton folderWatcher object
+     */
+    private static final FolderWatcher FOLDER_WATCHER = new FolderWatcher();
+
+    /**
+     * the file that the watched roots are saved in, null if the watcher is not open
+     */
+    private File rootsFile;
+    /**
+     * the watched roots in the order they were added
+     */
+    private final Set<Path> roots = new LinkedHashSet<>();
+    /**
+     * the service that sends the events of the registered folders
+     */
+    private WatchService watchService;
+    /**
+     * the thread that collects the events and checks the changed paths
+     */
+    private Thread thread;
+    /**
+     * the registered folder of every watch key
+     */
+    private final Map<WatchKey, Path> folders = new ConcurrentHashMap<>();
+    /**
+     * the registered folders, to know that a deleted path was a folder
+     */
+    private final Set<Path> registeredFolders = ConcurrentHashMap.newKeySet();
+    /**
+     * the watched roots whose sub folders are not registered yet, the watcher thread registers them
+     */
+    private final Queue<Path> unregisteredRoots = new ConcurrentLinkedQueue<>();
+    /**
+     * guards waiting, the watcher thread is only woken up for a new root while it waits for an event
+     */
+    private final Object waitLock = new Object();
+    /**
+     * if the watcher thread waits for an event
+     */
+    private boolean waiting;
+    /**
+     * runs a task on the thread that changes the database, the changes are applied there
+     */
+    private Executor databaseThread = Runnable::run;
+
+    /**
+     * the singleton objects of the application
+     */
+    private final Database database = Database.getDatabase();
+    private final DatabaseManager dbManager = DatabaseManager.getDbManager();
+    private final DirectoryScanner scanner = DirectoryScanner.getDirectoryScanner();
+
+    /**
+     * get the singleton folderWatcher object
+     *
+     * @return the only folderWatcher object
+     */
+    public static FolderWatcher getFolderWatcher() {
+        return FOLDER_WATCHER;
+    }
+
+    /**
+     * set how a task is run on the thread that changes the database, e.g. Platform::runLater
+     * by default the changes are applied on the thread of the watcher
+     *
+     * @param databaseThread runs a task on the thread that changes the database
+     */
+    public void setDatabaseThread(Executor databaseThread) {
+        this.databaseThread = databaseThread;
+    }
+
+    /**
+     * start watching the roots that are saved in the file, the watcher is closed first if it is open
+     *
+     * @param rootsFile the file that the watched roots are saved in, it is created when a root is added
+     * @throws IOException if the file cannot be read or the watch service cannot be created
+     */
+    public synchronized void open(File rootsFile) throws IOException {
+        close();
+        List<String> savedRoots = rootsFile.exists()
+                ? Files.readAllLines(rootsFile.toPath(), StandardCharsets.UTF_8)
+                : Collections.emptyList();
+        WatchService service = FileSystems.getDefault().newWatchService();
+        this.rootsFile = rootsFile;
+        this.watchService = service;
+        for (String savedRoot : savedRoots) {
+            if (!savedRoot.isEmpty()) {
+                Path root = Paths.get(savedRoot);
+                roots.add(root);
+                registerRoot(root, service);
+            }
+        }
+        thread = new Thread(() -> collectEvents(service), "folder watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * start watching a folder and all its sub folders and save it with the watched roots
+     * Nothing happens if the watcher is not open or the folder is already watched
+     *
+     * @param root the folder
+     * @throws IOException if the watched roots cannot be saved
+     */
+    public synchronized void watch(Path root) throws IOException {
+        Path normalized = root.toAbsolutePath().normalize();
+        if (rootsFile == null || !roots.add(normalized))
+            return;
+        registerRoot(normalized, watchService);
+        synchronized (waitLock) {
+            if (waiting)
+                thread.interrupt();
+        }
+        List<String> lines = new ArrayList<>();
+        for (Path watched : roots) {
+            lines.add(watched.toString());
+        }
+        Files.write(rootsFile.toPath(), lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * get the watched roots
+     *
+     * @return a copy of the watched roots
+     */
+    public synchronized List<Path> getRoots() {
+        return new ArrayList<>(roots);
+    }
+
+    /**
+     * stop watching, the events that are not applied yet are dropped
+     */
+    public synchronized void close() {
+        if (watchService == null)
+            return;
+        try {
+            // the thread stops when the service is closed
+            watchService.close();
+            thread.join();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        watchService = null;
+        thread = null;
+        rootsFile = null;
+        roots.clear();
+        folders.clear();
+        registeredFolders.clear();
+        unregisteredRoots.clear();
+    }
+
+    /**
+     * register a watched root, its sub folders are registered by the watcher thread
+     *
+     * @param root    the watched root
+     * @param service the watch service
+     */
+    private void registerRoot(Path root, WatchService service) {
+        if (register(root, service))
+            unregisteredRoots.add(root);
+    }
+
+    /**
+     * register a folder and all its sub folders with the watch service, only the folders are read
+     * a folder that cannot be read or registered is skipped with its sub folders, and a folder that is already
+     * registered is not read again, except the folder itself
+     *
+     * @param root    the folder
+     * @param service the watch service
+     */
+    private void registerTree(Path root, WatchService service) {
+        Deque<Path> unread = new ArrayDeque<>();
+        unread.push(root);
+        while (!unread.isEmpty()) {
+            Path folder = unread.pop();
+            if (!folder.equals(root) && registeredFolders.contains(folder) || !register(folder, service))
+                continue;
+            try (DirectoryStream<Path> subFolders = Files.newDirectoryStream(folder,
+                    path -> Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS))) {
+                for (Path subFolder : subFolders) {
+                    unread.push(subFolder);
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                // the folder cannot be read, its sub folders are not watched
+            }
+        }
+    }
+
+    /**
+     * register a folder with the watch service
+     *
+     * @param folder  the folder
+     * @param service the watch service
+     * @return if the folder is registered
+     */
+    private boolean register(Path folder, WatchService service) {
+        try {
+            folders.put(folder.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), folder);
+            registeredFolders.add(folder);
+            return true;
+        } catch (IOException | ClosedWatchServiceException e) {
+            // the folder is gone or cannot be watched, a root is watched again if it comes back in the next run
+            return false;
+        }
+    }
+
+    /**
+     * collect the events into changed paths and check them once the events stop for a moment
+     * this runs on the watcher thread until the watch service is closed, the sub folders of a new root are
+     * registered before the next event is taken
+     *
+     * @param service the watch service
+     */
+    private void collectEvents(WatchService service) {
+        ChangedPaths changed = new ChangedPaths();
+        long firstEvent = 0;
+        long lastEvent = 0;
+        try {
+            while (true) {
+                for (Path root = unregisteredRoots.poll(); root != null; root = unregisteredRoots.poll()) {
+                    registerTree(root, service);
+                }
+                synchronized (waitLock) {
+                    if (!unregisteredRoots.isEmpty())
+                        continue;
+                    waiting = true;
+                }
+                WatchKey key;
+                try {
+                    if (changed.isEmpty()) {
+                        key = service.take();
+                    } else {
+                        long now = System.currentTimeMillis();
+                        long wait = Math.min(lastEvent + DEBOUNCE_MILLIS, firstEvent + MAX_DELAY_MILLIS) - now;
+                        key = wait > 0 ? service.poll(wait, TimeUnit.MILLISECONDS) : null;
+                    }
+                } catch (InterruptedException e) {
+                    // a root is added
+                    continue;
+                } finally {
+                    synchronized (waitLock) {
+                        waiting = false;
+                        // the thread is only interrupted for a new root, which is registered next
+                        Thread.interrupted();
+                    }
+                }
+                if (key == null) {
+                    checkChangedPaths(changed);
+                    changed = new ChangedPaths();
+                    continue;
+                }
+                if (changed.isEmpty())
+                    firstEvent = System.currentTimeMillis();
+                lastEvent = System.currentTimeMillis();
+                collect(key, service, changed);
+            }
+        } catch (ClosedWatchServiceException e) {
+            // the watcher is closed
+        }
+    }
+
+    /**
+     * add the paths of the events of a watch key to the changed paths
+     *
+     * @param key     the signalled watch key
+     * @param service the watch service
+     * @param changed the changed paths
+     */
+    private void collect(WatchKey key, WatchService service, ChangedPaths changed) {
+        Path folder = folders.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (folder == null)
+                continue;
+            if (event.kind() == OVERFLOW) {
+                // some events are lost, so everything in the folder is checked
+                changed.checkedFolders.add(folder);
+                continue;
+            }
+            Path path = folder.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                registerTree(path, service);
+                changed.newFolders.add(path);
+            } else if (registeredFolders.contains(path)) {
+                changed.checkedFolders.add(path);
+            } else if (scanner.isImageFile(path.getFileName().toString())) {
+                changed.files.add(path);
+            }
+        }
+        if (!key.reset()) {
+            // the folder is deleted or cannot be watched anymore
+            folders.remove(key);
+            registeredFolders.remove(folder);
+        }
+    }
+
+    /**
+     * compare the changed paths on the disk with the database and apply the differences on the database thread
+     * The files are checked here, the photos of a checked folder are found through the path index of the
+     * database, and the database is only changed on its own thread
+     *
+     * @param changed the changed paths
+     */
+    private void checkChangedPaths(ChangedPaths changed) {
+        List<Path> added = new ArrayList<>();
+        List<Path> gone = new ArrayList<>();
+        for (Path path : changed.files) {
+            if (!Files.isRegularFile(path))
+                gone.add(path);
+            else if (!database.hasPhoto(path.toString()))
+                added.add(path);
+        }
+        List<Path> scannedFolders = new ArrayList<>(changed.newFolders);
+        for (Path folder : changed.checkedFolders) {
+            if (Files.isDirectory(folder))
+                scannedFolders.add(folder);
+            for (String photoPath : database.getPhotoPathsIn(folder.toString())) {
+                Path path = Paths.get(photoPath);
+                if (!Files.exists(path))
+                    gone.add(path);
+            }
+        }
+        scanner.scan(scannedFolders, true).filter(path -> !database.hasPhoto(path.toString())).forEach(added::add);
+        if (!added.isEmpty() || !gone.isEmpty())
+            databaseThread.execute(() -> apply(added, gone));
+    }
+
+    /**
+     * apply the changes on the disk to the database in one batch, this runs on the database thread
+     * The database is checked again here, since it may have changed since the paths were read
+     *
+     * @param added the image files that were not in the database
+     * @param gone  the image files that no longer exist
+     */
+    private void apply(List<Path> added, List<Path> gone) {
+        Set<Photo> removed = new LinkedHashSet<>();
+        for (Path path : gone) {
+            Photo photo = database.getPhoto(path.toString());
+            if (photo != null)
+                removed.add(photo);
+        }
+
+        // a new file in the same folder with the same name without tags is the renamed file of a removed photo
+        Map<String, Path> addedByName = new HashMap<>();
+        for (Path path : added) {
+            addedByName.putIfAbsent(nameWithoutTags(path), path);
+        }
+        Set<Path> renamedTo = new LinkedHashSet<>();
+        dbManager.beginBatch();
+        try {
+            for (Photo photo : removed) {
+                Path newPath = addedByName.get(nameWithoutTags(Paths.get(photo.getDirectory())));
+                if (newPath != null && !database.hasPhoto(newPath.toString()) && renamedTo.add(newPath))
+                    relocatePhoto(photo, newPath);
+                else
+                    removePhoto(photo);
+            }
+            for (Path path : added) {
+                if (!renamedTo.contains(path))
+                    addPhoto(path);
+            }
+        } finally {
+            dbManager.commitBatch();
+        }
+    }
+
+    /**
+     * get the key that a photo keeps when its tags are changed: the folder, the name before the tags and the
+     * extension
+     *
+     * @param path the path of the image file
+     * @return the path without the tags
+     */
+    private static String nameWithoutTags(Path path) {
+        String fileName = path.getFileName().toString();
+        int extensionIndex = fileName.lastIndexOf(".") < 0 ? fileName.length() : fileName.lastIndexOf(".");
+        int firstTagIndex = fileName.indexOf("@");
+        String name = firstTagIndex < 0 ? fileName.substring(0, extensionIndex) : fileName.substring(0, firstTagIndex);
+        return path.resolveSibling(name.trim()) + fileName.substring(extensionIndex).toLowerCase();
+    }
+
+    /**
+     * get the tags in the name of an image file, a tag that is not in the database is created
+     *
+     * @param path the path of the image file
+     * @return the tags
+     */
+    private List<Tag> parseTags(Path path) {
+        List<Tag> tags = new ArrayList<>();
+        for (String tagName : Photo.parseTagNames(path.getFileName().toString())) {
+            Tag tag = database.getTag(tagName);
+            tags.add(tag != null ? tag : new Tag(tagName));
+        }
+        return tags;
+    }
+
+    /**
+     * add a photo for a new image file with the tags in its name
+     *
+     * @param path the path of the image file
+     */
+    private void addPhoto(Path path) {
+        if (database.hasPhoto(path.toString()) || !Files.isRegularFile(path))
+            return;
+        List<Tag> tags = parseTags(path);
+        Photo photo = new Photo(path.toString(), tags);
+        database.addPhoto(photo);
+        dbManager.addTags(photo, tags);  // add the tags to the photo and the database if unique
+    }
+
+    /**
+     * give a photo the path and the tags of its renamed file, the tags it lost are deleted if unused
+     *
+     * @param photo   the photo
+     * @param newPath the path of the renamed file
+     */
+    private void relocatePhoto(Photo photo, Path newPath) {
+        List<Tag> oldTags = new ArrayList<>(photo.getCurrentTags());
+        database.relocatePhoto(photo, newPath.toString(), parseTags(newPath));
+        for (Tag tag : oldTags) {
+            database.deleteCurrentExistingTag(tag);
+        }
+    }
+
+    /**
+     * remove a photo whose file is gone, its tags are deleted if unused
+     *
+     * @param photo the photo
+     */
+    private void removePhoto(Photo photo) {
+        List<Tag> oldTags = new ArrayList<>(photo.getCurrentTags());
+        database.removePhoto(photo);
+        for (Tag tag : oldTags) {
+            database.deleteCurrentExistingTag(tag);
+        }
+    }
+
+    /**
+     * the paths that changed since the changes were last applied
+     */
+    private static class ChangedPaths {
+        /**
+         * the image files that are created, deleted or changed
+         */
+        private final Set<Path> files = new LinkedHashSet<>();
+        /**
+         * the created folders, their image files are added
+         */
+        private final Set<Path> newFolders = new LinkedHashSet<>();
+        /**
+         * the deleted folders and the folders that lost events, every photo in them is checked
+         */
+        private final Set<Path> checkedFolders = new LinkedHashSet<>();
+
+        /**
+         * check if no path changed
+         *
+         * @return if no path changed
+         */
+        boolean isEmpty() {
+            return files.isEmpty() && newFolders.isEmpty() && checkedFolders.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package Model;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * a reader of the database that older versions saved with java serialization in the .ser file
+ * Database, Photo and Tag changed their fields since then, so the .ser file is not read into them. The class
+ * descriptors of the old classes are replaced by the descriptors of LegacyDatabase, LegacyPhoto and LegacyTag,
+ * which have the same fields and the same serialVersionUID as the old classes, and the photos, the existing
+ * tags and the tag logs that are read are then added to a new database
+ *
+ * @author Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+final class LegacyDatabaseReader {
+
+    /**
+     * the classes that stand in for the old classes by the names of the old classes
+     */
+    private static final Map<String, Class<?>> LEGACY_CLASSES = new HashMap<>();
+
+    static {
+        LEGACY_CLASSES.put("Model.Database", LegacyDatabase.class);
+        LEGACY_CLASSES.put("Model.Photo", LegacyPhoto.class);
+        LEGACY_CLASSES.put("Model.Tag", LegacyTag.class);
+    }
+
+    /**
+     * the reader has no state
+     */
+    private LegacyDatabaseReader() {
+    }
+
+    /**
+     * read a .ser file of an older version into a new database
+     *
+     * @param file the .ser file
+     * @return a new database with the photos, the existing tags and the tag logs of the file
+     * @throws IOException if the file cannot be read or is not a database of an older version
+     */
+    static Database read(File file) throws IOException {
+        LegacyDatabase legacy;
+        try (ObjectInputStream in = new LegacyInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            Object object = in.readObject();
+            if (!(object instanceof LegacyDatabase))
+                throw new IOException(file + " is not a database file");
+            legacy = (LegacyDatabase) object;
+        } catch (ClassNotFoundException e) {
+            throw new IOException(file + " has a class that is not known", e);
+        }
+
+        Database database = new Database();
+        for (LegacyTag tag : legacy.currentExistingTags) {
+            database.addCurrentExistingTag(new Tag(tag.tagName));
+        }
+        for (LegacyPhoto legacyPhoto : legacy.allPhotos) {
+            Photo photo = new Photo(legacyPhoto.directory, toTags(legacyPhoto.currentTags));
+            database.addPhoto(photo);
+            // the legacy objects have identity hash codes, so the tag log is found by the same object
+            List<HashSet<LegacyTag>> tagLog = legacy.tagLogs.get(legacyPhoto);
+            if (tagLog != null) {
+                for (HashSet<LegacyTag> tagSet : tagLog) {
+                    database.addTagLog(photo, toTags(tagSet));
+                }
+            }
+        }
+        return database;
+    }
+
+    /**
+     * get the tags with the names of the old tags
+     *
+     * @param legacyTags the old tags
+     * @return the tags
+     */
+    private static List<Tag> toTags(Collection<LegacyTag> legacyTags) {
+        List<Tag> tags = new ArrayList<>(legacyTags.size());
+        for (LegacyTag tag : legacyTags) {
+            tags.add(new Tag(tag.tagName));
+        }
+        return tags;
+    }
+
+    /**
+     * an object input stream that reads the old classes as the legacy classes
+     */
+    private static final class LegacyInputStream extends ObjectInputStream {
+
+        /**
+         * create a stream that reads the old classes as the legacy classes
+         *
+         * @param in the input
+         * @throws IOException if the header of the stream cannot be read
+         */
+        LegacyInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        /**
+         * read a class descriptor and replace the descriptor of an old class by the one of its legacy class
+         * the legacy class has the same fields, so the data of the old class is read the same way
+         *
+         * @return the class descriptor
+         * @throws IOException            if the descriptor cannot be read or the old class has another version
+         * @throws ClassNotFoundException if a class of the descriptor cannot be found
+         */
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            ObjectStreamClass descriptor = super.readClassDescriptor();
+            Class<?> legacyClass = LEGACY_CLASSES.get(descriptor.getName());
+            if (legacyClass == null)
+                return descriptor;
+            ObjectStreamClass legacyDescriptor = ObjectStreamClass.lookup(legacyClass);
+            if (descriptor.getSerialVersionUID() != legacyDescriptor.getSerialVersionUID())
+                throw new InvalidClassException(descriptor.getName(), "serialVersionUID "
+                        + descriptor.getSerialVersionUID() + " is not the one of an older version");
+            return legacyDescriptor;
+        }
+    }
+
+    /**
+     * the fields of the Database class of older versions
+     */
+    private static final class LegacyDatabase implements Serializable {
+        /**
+         * the serialVersionUID of the old Database class
+         */
+        private static final long serialVersionUID = -7925890530272605064L;
+        /**
+         * all the photos
+         */
+        private List<LegacyPhoto> allPhotos;
+        /**
+         * the tag log of each photo
+         */
+        private HashMap<LegacyPhoto, List<HashSet<LegacyTag>>> tagLogs;
+        /**
+         * the existing tags in order
+         */
+        private List<LegacyTag> currentExistingTags;
+        /**
+         * the accepted photo extensions
+         */
+        private String[] acceptableImageExtensions;
+    }
+
+    /**
+     * the fields of the Photo class of older versions
+     */
+    private static final class LegacyPhoto implements Serializable {
+        /**
+         * the serialVersionUID of the old Photo class
+         */
+        private static final long serialVersionUID = -66248568532585350L;
+        /**
+         * the current tags of the photo
+         */
+        private HashSet<LegacyTag> currentTags;
+        /**
+         * the path of the photo
+         */
+        private String directory;
+    }
+
+    /**
+     * the fields of the Tag class of older versions
+     */
+    private static final class LegacyTag implements Serializable {
+        /**
+         * the serialVersionUID of the old Tag class
+         */
+        private static final long serialVersionUID = 1580836821195151477L;
+        /**
+         * the name of the tag
+         */
+        private String tagName;
+        /**
+         * the photos that have the tag
+         */
+        private List<LegacyPhoto> allPhotos;
+    }
+}
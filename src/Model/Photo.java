@@ -3,11 +3,19 @@ package Model;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 /**
@@ -19,11 +27,21 @@ import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
  */
 public class Photo implements Serializable {
 
+    /**
+     * the id that is given to the next new photo object
+     */
+    private static final AtomicInteger nextId = new AtomicInteger();
 
     /**
-     * all the tags that are related to this image
+     * the dense id of this photo, it never changes when the photo is renamed or moved
+     * and is saved with the photo, so it identifies the photo across runs
      */
-    private HashSet<Tag> currentTags;
+    private final int id;
+
+    /**
+     * all the tags that are related to this image, shared with every other photo that has the same tags
+     */
+    private TagSet currentTags;
 
     /**
      * the directory of this photo
@@ -37,7 +55,8 @@ public class Photo implements Serializable {
      * @param directory the directory of this image file
      */
     public Photo(String directory) {
-        this.currentTags = new HashSet<>();
+        this.id = nextId.getAndIncrement();
+        this.currentTags = TagSetStore.getTagSetStore().get(TagSetStore.EMPTY_SET_ID);
         this.directory = directory;
     }
 
@@ -49,19 +68,49 @@ public class Photo implements Serializable {
      */
     public Photo(String directory, List<Tag> tagSet) {
         this(directory);
-        currentTags.addAll(tagSet);
-        // populate this photo to all the tags
-        for (Tag tag : tagSet) {
-            tag.addPhoto(this);
-        }
+        // the photo is put in the posting lists of its tags when it is added to the database
+        currentTags = TagSetStore.getTagSetStore().intern(tagSet);
+    }
+
+    /**
+     * create a photo object that was saved in a previous run, its tags are indexed when it is added to a database
+     *
+     * @param id        the id that the photo was given when it was first created
+     * @param directory the directory path of this image file
+     * @param tags      the current tag set of this image
+     */
+    Photo(int id, String directory, TagSet tags) {
+        this.id = id;
+        this.currentTags = tags;
+        this.directory = directory;
+        reserveId(id);
+    }
+
+    /**
+     * get the id of this photo object
+     *
+     * @return the id of this photo
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * make sure that no new photo object is given this id or a smaller one,
+     * called when a photo object that was created in a previous run is loaded
+     *
+     * @param id the id of a loaded photo object
+     */
+    static void reserveId(int id) {
+        nextId.accumulateAndGet(id + 1, Math::max);
     }
 
     /**
      * get a set of tags of this photo object
      *
-     * @return a set of tags
+     * @return an immutable set of tags
      */
-    public HashSet<Tag> getCurrentTags() {
+    public TagSet getCurrentTags() {
         return currentTags;
     }
 
@@ -93,7 +142,12 @@ public class Photo implements Serializable {
         try {
             Path oldFile = new File(oldPath).toPath();
             Path newFile = new File(newPath).toPath();
-            Files.move(oldFile, newFile, REPLACE_EXISTING);
+            try {
+                Files.move(oldFile, newFile, ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                // the file is moved to another drive
+                Files.move(oldFile, newFile, REPLACE_EXISTING);
+            }
         } catch (IOException e) {
             return;
         }
@@ -109,6 +163,19 @@ public class Photo implements Serializable {
         String oldDir = getDirectory();
         this.directory = directory;
         Photo.moveFile(oldDir, directory);
+        Database.getDatabase().reindexPhoto(this, oldDir);
+    }
+
+    /**
+     * set the path and the tags of this photo without moving the file, used when the saved state is restored
+     * the caller updates the indexes of the database
+     *
+     * @param directory the saved path of this photo
+     * @param tags      the saved tags of this photo
+     */
+    void restore(String directory, TagSet tags) {
+        this.directory = directory;
+        this.currentTags = tags;
     }
 
     /**
@@ -122,6 +189,19 @@ public class Photo implements Serializable {
         return path.substring(0, endIndex);
     }
 
+    /**
+     * parse the tag names from the name of an image file, they are the words from the first "@" to the extension
+     *
+     * @param fileName the name of the image file
+     * @return the tag names with the "@" symbol
+     */
+    public static List<String> parseTagNames(String fileName) {
+        int firstTagIndex = fileName.indexOf("@");
+        if (firstTagIndex < 0)
+            return Collections.emptyList();
+        return Arrays.asList(fileName.substring(firstTagIndex, fileName.lastIndexOf(".")).split(" "));
+    }
+
     /**
      * get the image name with the extension (e.g. "pic1.jpg", "pic2.png")
      *
@@ -143,36 +223,72 @@ public class Photo implements Serializable {
     }
 
     /**
-     * Return true if new added tag is not in the HashSet
-     * Return false if new added tag is already in the HashSet
+     * add the tag to this photo and rename the photo file
+     * Nothing happens if the photo already has the tag
      *
      * @param tag a new tag
      */
     public void addTag(Tag tag) {
-        if (currentTags.add(tag)) {
-            String newPath = getPathWithoutExtension() + " " + tag + getExtension();
-            setDirectory(newPath);  // update directory
-            tag.addPhoto(this);
-        }
+        changeTags(Collections.singletonList(tag), Collections.emptyList());
     }
 
     /**
-     * Return true if the tag is in the HashSet
-     * Return false if there is no such a tag in the HashSet
+     * delete the tag from this photo and rename the photo file
+     * Nothing happens if the photo does not have the tag
      *
      * @param tag unwanted tag
      */
     public void deleteTag(Tag tag) {
-        if (currentTags.remove(tag)) {
-            String newPath = directory.replace(" " + tag, "");
-            setDirectory(newPath); // update directory
-            tag.deletePhoto(this);
+        changeTags(Collections.emptyList(), Collections.singletonList(tag));
+    }
+
+    /**
+     * delete and add tags of this photo and rename the photo file once for all of them
+     * The final file name is worked out from the whole change first, the deleted tags are taken out of the name
+     * and then the added tags are put at the end, the same name as deleting and adding the tags one by one.
+     * A tag that the photo already has is not added and a tag that it does not have is not deleted
+     *
+     * @param addedTags   the tags to add
+     * @param deletedTags the tags to delete
+     */
+    public void changeTags(Collection<Tag> addedTags, Collection<Tag> deletedTags) {
+        Set<Tag> tags = new LinkedHashSet<>(currentTags);
+        List<Tag> deleted = new ArrayList<>();
+        List<Tag> added = new ArrayList<>();
+        String newPath = directory;
+        for (Tag tag : deletedTags) {
+            if (tags.remove(tag)) {
+                deleted.add(tag);
+                newPath = newPath.replace(" " + tag, "");
+            }
+        }
+        for (Tag tag : addedTags) {
+            if (tags.add(tag)) {
+                added.add(tag);
+                int extensionIndex = newPath.lastIndexOf(".");
+                newPath = newPath.substring(0, extensionIndex) + " " + tag + newPath.substring(extensionIndex);
+            }
+        }
+        if (deleted.isEmpty() && added.isEmpty())
+            return;
+
+        currentTags = TagSetStore.getTagSetStore().intern(tags);
+        if (!newPath.equals(directory))
+            setDirectory(newPath);  // update directory with one rename of the file
+        Database database = Database.getDatabase();
+        for (Tag tag : deleted) {
+            if (!currentTags.contains(tag))
+                database.updateTagIndex(this, tag, -1);
+        }
+        for (Tag tag : added) {
+            if (!deleted.contains(tag))
+                database.updateTagIndex(this, tag, 1);
         }
     }
 
 
     /**
-     * Return true if and only if two objects are Photo and they have the same directory
+     * Return true if and only if two objects are Photo and they have the same id
      * Return false otherwise
      *
      * @param obj the other object to be compared
@@ -180,7 +296,17 @@ public class Photo implements Serializable {
      */
     @Override
     public boolean equals(Object obj) {
-        return obj instanceof Photo && ((Photo) obj).getDirectory().equals(getDirectory());
+        return obj instanceof Photo && ((Photo) obj).getId() == getId();
+    }
+
+    /**
+     * the hash code of a photo is its id, so it does not change when the photo is renamed or moved
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(id);
     }
 
     /**
@@ -0,0 +1,842 @@
+package Model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * a compressed set of photo ids that is used as the posting list of a tag
+ * The ids are split into chunks of 65536 ids by their high 16 bits (the same layout as a Roaring bitmap).
+ * A sparse chunk stores the low 16 bits of its ids in a sorted array and a dense chunk stores them in a
+ * plain bitmap, so the set stays small whether a tag has a few photos or most of the library
+ *
+ * @author Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+public class PhotoBitmap implements Serializable {
+
+    /**
+     * the version of the serialized form
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * a chunk with more ids than this is stored as a bitmap instead of a sorted array
+     */
+    private static final int ARRAY_LIMIT = 4096;
+    /**
+     * the number of longs in the bitmap of a dense chunk
+     */
+    private static final int BITMAP_WORDS = 1024;
+
+    /**
+     * the sorted high 16 bits of each chunk
+     */
+    private transient char[] keys;
+    /**
+     * the chunks in the same order as the keys
+     */
+    private transient Chunk[] chunks;
+    /**
+     * the number of chunks in use
+     */
+    private transient int chunkCount;
+    /**
+     * the number of ids in this set
+     */
+    private transient int cardinality;
+
+    /**
+     * create an empty set of photo ids
+     */
+    public PhotoBitmap() {
+        keys = new char[4];
+        chunks = new Chunk[4];
+    }
+
+    /**
+     * add a photo id to this set
+     *
+     * @param id a photo id, not negative
+     * @return true if the id was not in this set
+     */
+    public boolean add(int id) {
+        char key = (char) (id >>> 16);
+        int index = indexOfKey(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertChunk(index, key, new ArrayChunk());
+        }
+        Chunk chunk = chunks[index];
+        int before = chunk.cardinality;
+        chunks[index] = chunk.add((char) id);
+        if (chunks[index].cardinality == before)
+            return false;
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * remove a photo id from this set
+     *
+     * @param id a photo id
+     * @return true if the id was in this set
+     */
+    public boolean remove(int id) {
+        int index = indexOfKey((char) (id >>> 16));
+        if (index < 0)
+            return false;
+        Chunk chunk = chunks[index];
+        int before = chunk.cardinality;
+        chunk = chunk.remove((char) id);
+        if (chunk.cardinality == before)
+            return false;
+        cardinality--;
+        if (chunk.cardinality == 0) {
+            removeChunk(index);
+        } else {
+            chunks[index] = chunk;
+        }
+        return true;
+    }
+
+    /**
+     * check if this set has the photo id
+     *
+     * @param id a photo id
+     * @return if the id is in this set
+     */
+    public boolean contains(int id) {
+        int index = indexOfKey((char) (id >>> 16));
+        return index >= 0 && chunks[index].contains((char) id);
+    }
+
+    /**
+     * get the number of photo ids in this set
+     *
+     * @return the number of ids
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * check if this set has no photo id
+     *
+     * @return if this set is empty
+     */
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * remove all the photo ids from this set
+     */
+    public void clear() {
+        Arrays.fill(chunks, 0, chunkCount, null);
+        chunkCount = 0;
+        cardinality = 0;
+    }
+
+    /**
+     * get the photo id at the rank in ascending order
+     *
+     * @param rank the number of smaller ids in this set
+     * @return the photo id at this rank
+     */
+    public int select(int rank) {
+        if (rank < 0 || rank >= cardinality)
+            throw new IndexOutOfBoundsException("rank " + rank + " of " + cardinality);
+        for (int i = 0; i < chunkCount; i++) {
+            if (rank < chunks[i].cardinality)
+                return keys[i] << 16 | chunks[i].select(rank);
+            rank -= chunks[i].cardinality;
+        }
+        throw new IllegalStateException("cardinality is out of date");
+    }
+
+    /**
+     * get the rank of a photo id, the number of smaller ids in this set
+     *
+     * @param id a photo id
+     * @return the number of ids in this set that are smaller than the id
+     */
+    public int rank(int id) {
+        char key = (char) (id >>> 16);
+        int rank = 0;
+        for (int i = 0; i < chunkCount && keys[i] <= key; i++) {
+            rank += keys[i] < key ? chunks[i].cardinality : chunks[i].rank((char) id);
+        }
+        return rank;
+    }
+
+    /**
+     * pass every photo id in this set to the consumer in ascending order
+     *
+     * @param consumer the consumer of the ids
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < chunkCount; i++) {
+            chunks[i].forEach(keys[i] << 16, consumer);
+        }
+    }
+
+    /**
+     * get an iterator over the photo ids in ascending order
+     *
+     * @return an iterator of photo ids
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return iterator(0);
+    }
+
+    /**
+     * get an iterator over the photo ids in ascending order that starts at the rank
+     *
+     * @param rank the number of smaller ids to skip
+     * @return an iterator of photo ids
+     */
+    public PrimitiveIterator.OfInt iterator(int rank) {
+        return new PrimitiveIterator.OfInt() {
+            /**
+             * the chunk of the next id
+             */
+            private int chunkIndex = 0;
+            /**
+             * the rank of the next id in an array chunk
+             */
+            private int position = 0;
+            /**
+             * the index of the word of the next id in a bitmap chunk
+             */
+            private int wordIndex = 0;
+            /**
+             * the bits of the word that are not returned yet in a bitmap chunk
+             */
+            private long word;
+
+            {
+                int skip = Math.max(rank, 0);
+                while (chunkIndex < chunkCount && skip >= chunks[chunkIndex].cardinality) {
+                    skip -= chunks[chunkIndex++].cardinality;
+                }
+                if (chunkIndex < chunkCount) {
+                    if (chunks[chunkIndex] instanceof BitmapChunk) {
+                        char low = chunks[chunkIndex].select(skip);
+                        wordIndex = low >>> 6;
+                        word = ((BitmapChunk) chunks[chunkIndex]).words[wordIndex] & -1L << low;
+                    } else {
+                        position = skip;
+                    }
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return chunkIndex < chunkCount;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                Chunk chunk = chunks[chunkIndex];
+                int high = keys[chunkIndex] << 16;
+                int low;
+                boolean last;
+                if (chunk instanceof BitmapChunk) {
+                    long[] words = ((BitmapChunk) chunk).words;
+                    while (word == 0) {
+                        word = words[++wordIndex];
+                    }
+                    low = wordIndex << 6 | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    while (word == 0 && wordIndex < BITMAP_WORDS - 1) {
+                        word = words[++wordIndex];
+                    }
+                    last = word == 0;
+                } else {
+                    low = ((ArrayChunk) chunk).values[position++];
+                    last = position == chunk.cardinality;
+                }
+                if (last) {
+                    chunkIndex++;
+                    position = 0;
+                    if (chunkIndex < chunkCount && chunks[chunkIndex] instanceof BitmapChunk) {
+                        wordIndex = 0;
+                        word = ((BitmapChunk) chunks[chunkIndex]).words[0];
+                    }
+                }
+                return high | low;
+            }
+        };
+    }
+
+    /**
+     * get all the photo ids in ascending order
+     *
+     * @return an array of photo ids
+     */
+    public int[] toArray() {
+        int[] result = new int[cardinality];
+        int[] next = {0};
+        forEach(id -> result[next[0]++] = id);
+        return result;
+    }
+
+    /**
+     * create a copy of this set
+     *
+     * @return a new set with the same ids
+     */
+    public PhotoBitmap copy() {
+        PhotoBitmap result = new PhotoBitmap();
+        for (int i = 0; i < chunkCount; i++) {
+            result.appendChunk(keys[i], chunks[i].copy());
+        }
+        return result;
+    }
+
+    /**
+     * get the photo ids that are in both sets
+     *
+     * @param a a set of photo ids
+     * @param b another set of photo ids
+     * @return a new set with the intersection
+     */
+    public static PhotoBitmap and(PhotoBitmap a, PhotoBitmap b) {
+        PhotoBitmap result = new PhotoBitmap();
+        int i = 0, j = 0;
+        while (i < a.chunkCount && j < b.chunkCount) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                result.appendChunk(a.keys[i], a.chunks[i++].and(b.chunks[j++]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * get the photo ids that are in either set
+     *
+     * @param a a set of photo ids
+     * @param b another set of photo ids
+     * @return a new set with the union
+     */
+    public static PhotoBitmap or(PhotoBitmap a, PhotoBitmap b) {
+        PhotoBitmap result = new PhotoBitmap();
+        int i = 0, j = 0;
+        while (i < a.chunkCount || j < b.chunkCount) {
+            if (j == b.chunkCount || (i < a.chunkCount && a.keys[i] < b.keys[j])) {
+                result.appendChunk(a.keys[i], a.chunks[i++].copy());
+            } else if (i == a.chunkCount || a.keys[i] > b.keys[j]) {
+                result.appendChunk(b.keys[j], b.chunks[j++].copy());
+            } else {
+                result.appendChunk(a.keys[i], a.chunks[i++].or(b.chunks[j++]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * get the photo ids that are in the first set but not in the second set
+     *
+     * @param a a set of photo ids
+     * @param b the set of photo ids to leave out
+     * @return a new set with the difference
+     */
+    public static PhotoBitmap andNot(PhotoBitmap a, PhotoBitmap b) {
+        PhotoBitmap result = new PhotoBitmap();
+        int j = 0;
+        for (int i = 0; i < a.chunkCount; i++) {
+            while (j < b.chunkCount && b.keys[j] < a.keys[i]) {
+                j++;
+            }
+            if (j < b.chunkCount && b.keys[j] == a.keys[i]) {
+                result.appendChunk(a.keys[i], a.chunks[i].andNot(b.chunks[j]));
+            } else {
+                result.appendChunk(a.keys[i], a.chunks[i].copy());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * write this set in its compressed form
+     *
+     * @param out the output to write to
+     * @throws IOException if the output cannot be written
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            out.writeChar(keys[i]);
+            chunks[i].writeTo(out);
+        }
+    }
+
+    /**
+     * read a set that was written by writeTo
+     *
+     * @param in the input to read from
+     * @return the set of photo ids
+     * @throws IOException if the input cannot be read
+     */
+    public static PhotoBitmap readFrom(DataInput in) throws IOException {
+        PhotoBitmap result = new PhotoBitmap();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            char key = in.readChar();
+            result.appendChunk(key, Chunk.readFrom(in));
+        }
+        return result;
+    }
+
+    /**
+     * serialize this set in its compressed form
+     *
+     * @param out the stream that the set is written to
+     * @throws IOException if the stream cannot be written
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        writeTo(out);
+    }
+
+    /**
+     * deserialize a set that was written in its compressed form
+     *
+     * @param in the stream that the set is read from
+     * @throws IOException            if the stream cannot be read
+     * @throws ClassNotFoundException if a class of the serialized data cannot be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        PhotoBitmap read = readFrom(in);
+        keys = read.keys;
+        chunks = read.chunks;
+        chunkCount = read.chunkCount;
+        cardinality = read.cardinality;
+    }
+
+    /**
+     * Return true if and only if the other object is a PhotoBitmap with the same photo ids
+     *
+     * @param obj the other object to be compared
+     * @return boolean
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof PhotoBitmap))
+            return false;
+        PhotoBitmap other = (PhotoBitmap) obj;
+        return cardinality == other.cardinality && Arrays.equals(toArray(), other.toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    /**
+     * String representation of this object
+     *
+     * @return the photo ids in ascending order
+     */
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    /**
+     * find the chunk with the key
+     *
+     * @param key the high 16 bits of a photo id
+     * @return the index of the chunk, or (-(insertion point) - 1) if there is no such chunk
+     */
+    private int indexOfKey(char key) {
+        // most ids are added in ascending order, so check the last chunk first
+        if (chunkCount > 0 && keys[chunkCount - 1] == key)
+            return chunkCount - 1;
+        return Arrays.binarySearch(keys, 0, chunkCount, key);
+    }
+
+    /**
+     * insert a chunk at the index
+     *
+     * @param index the index of the new chunk
+     * @param key   the key of the new chunk
+     * @param chunk the new chunk
+     */
+    private void insertChunk(int index, char key, Chunk chunk) {
+        if (chunkCount == keys.length) {
+            keys = Arrays.copyOf(keys, chunkCount * 2);
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, chunkCount - index);
+        System.arraycopy(chunks, index, chunks, index + 1, chunkCount - index);
+        keys[index] = key;
+        chunks[index] = chunk;
+        chunkCount++;
+        cardinality += chunk.cardinality;
+    }
+
+    /**
+     * add a chunk after all the other chunks, empty chunks are dropped
+     *
+     * @param key   a key larger than all the other keys
+     * @param chunk the chunk
+     */
+    private void appendChunk(char key, Chunk chunk) {
+        if (chunk.cardinality > 0)
+            insertChunk(chunkCount, key, chunk);
+    }
+
+    /**
+     * remove the chunk at the index
+     *
+     * @param index the index of the chunk
+     */
+    private void removeChunk(int index) {
+        System.arraycopy(keys, index + 1, keys, index, chunkCount - index - 1);
+        System.arraycopy(chunks, index + 1, chunks, index, chunkCount - index - 1);
+        chunks[--chunkCount] = null;
+    }
+
+    /**
+     * the low 16 bits of all the ids that share the same high 16 bits
+     * add and remove return the chunk that should replace this one, since a chunk changes its form
+     * when it becomes dense or sparse
+     */
+    private abstract static class Chunk {
+        /**
+         * the number of ids in this chunk
+         */
+        int cardinality;
+
+        abstract boolean contains(char low);
+
+        abstract Chunk add(char low);
+
+        abstract Chunk remove(char low);
+
+        abstract char select(int rank);
+
+        abstract int rank(char low);
+
+        abstract void forEach(int high, IntConsumer consumer);
+
+        abstract Chunk copy();
+
+        abstract long[] toWords();
+
+        abstract void writeTo(DataOutput out) throws IOException;
+
+        Chunk and(Chunk other) {
+            if (this instanceof ArrayChunk)
+                return ((ArrayChunk) this).filter(other, true);
+            if (other instanceof ArrayChunk)
+                return ((ArrayChunk) other).filter(this, true);
+            long[] words = toWords();
+            long[] otherWords = other.toWords();
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] &= otherWords[i];
+            }
+            return BitmapChunk.of(words);
+        }
+
+        Chunk or(Chunk other) {
+            long[] words = toWords();
+            long[] otherWords = other.toWords();
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] |= otherWords[i];
+            }
+            return BitmapChunk.of(words);
+        }
+
+        Chunk andNot(Chunk other) {
+            if (this instanceof ArrayChunk)
+                return ((ArrayChunk) this).filter(other, false);
+            long[] words = toWords();
+            long[] otherWords = other.toWords();
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] &= ~otherWords[i];
+            }
+            return BitmapChunk.of(words);
+        }
+
+        static Chunk readFrom(DataInput in) throws IOException {
+            int count = in.readChar() + 1;
+            if (count > ARRAY_LIMIT) {
+                long[] words = new long[BITMAP_WORDS];
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    words[i] = in.readLong();
+                }
+                return new BitmapChunk(words, count);
+            }
+            ArrayChunk chunk = new ArrayChunk();
+            chunk.values = new char[count];
+            for (int i = 0; i < count; i++) {
+                chunk.values[i] = in.readChar();
+            }
+            chunk.cardinality = count;
+            return chunk;
+        }
+    }
+
+    /**
+     * a sparse chunk that keeps the low 16 bits in a sorted array
+     */
+    private static class ArrayChunk extends Chunk {
+        /**
+         * the sorted low 16 bits, only the first cardinality values are used
+         */
+        char[] values = new char[4];
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        @Override
+        Chunk add(char low) {
+            int index = cardinality > 0 && values[cardinality - 1] < low
+                    ? -cardinality - 1 : Arrays.binarySearch(values, 0, cardinality, low);
+            if (index >= 0)
+                return this;
+            if (cardinality == ARRAY_LIMIT) {
+                BitmapChunk bitmap = new BitmapChunk(toWords(), cardinality);
+                return bitmap.add(low);
+            }
+            index = -index - 1;
+            if (cardinality == values.length)
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, cardinality * 2));
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = low;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Chunk remove(char low) {
+            int index = Arrays.binarySearch(values, 0, cardinality, low);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        char select(int rank) {
+            return values[rank];
+        }
+
+        @Override
+        int rank(char low) {
+            int index = Arrays.binarySearch(values, 0, cardinality, low);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < cardinality; i++) {
+                consumer.accept(high | values[i]);
+            }
+        }
+
+        @Override
+        Chunk copy() {
+            ArrayChunk result = new ArrayChunk();
+            result.values = Arrays.copyOf(values, Math.max(cardinality, 1));
+            result.cardinality = cardinality;
+            return result;
+        }
+
+        @Override
+        long[] toWords() {
+            long[] words = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            return words;
+        }
+
+        @Override
+        Chunk or(Chunk other) {
+            if (!(other instanceof ArrayChunk) || cardinality + other.cardinality > ARRAY_LIMIT)
+                return super.or(other);
+            ArrayChunk that = (ArrayChunk) other;
+            ArrayChunk result = new ArrayChunk();
+            result.values = new char[Math.max(cardinality + that.cardinality, 1)];
+            int i = 0, j = 0, k = 0;
+            while (i < cardinality || j < that.cardinality) {
+                if (j == that.cardinality || (i < cardinality && values[i] < that.values[j])) {
+                    result.values[k++] = values[i++];
+                } else if (i == cardinality || values[i] > that.values[j]) {
+                    result.values[k++] = that.values[j++];
+                } else {
+                    result.values[k++] = values[i++];
+                    j++;
+                }
+            }
+            result.cardinality = k;
+            return result;
+        }
+
+        /**
+         * keep the values that the other chunk has (or does not have)
+         *
+         * @param other the other chunk
+         * @param keep  true to keep the values in the other chunk, false to keep the values not in it
+         * @return a new chunk with the kept values
+         */
+        ArrayChunk filter(Chunk other, boolean keep) {
+            ArrayChunk result = new ArrayChunk();
+            result.values = new char[Math.max(cardinality, 1)];
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(values[i]) == keep)
+                    result.values[result.cardinality++] = values[i];
+            }
+            return result;
+        }
+
+        @Override
+        void writeTo(DataOutput out) throws IOException {
+            out.writeChar(cardinality - 1);
+            for (int i = 0; i < cardinality; i++) {
+                out.writeChar(values[i]);
+            }
+        }
+    }
+
+    /**
+     * a dense chunk that keeps the low 16 bits in a bitmap of 65536 bits
+     */
+    private static class BitmapChunk extends Chunk {
+        /**
+         * the bits of the chunk
+         */
+        final long[] words;
+
+        BitmapChunk(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        /**
+         * create the smallest chunk for the bits
+         *
+         * @param words the bits of the chunk
+         * @return an array chunk if the bits are sparse, else a bitmap chunk
+         */
+        static Chunk of(long[] words) {
+            int count = 0;
+            for (long word : words) {
+                count += Long.bitCount(word);
+            }
+            BitmapChunk bitmap = new BitmapChunk(words, count);
+            return count > ARRAY_LIMIT ? bitmap : bitmap.toArrayChunk();
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & 1L << low) != 0;
+        }
+
+        @Override
+        Chunk add(char low) {
+            if (!contains(low)) {
+                words[low >>> 6] |= 1L << low;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Chunk remove(char low) {
+            if (contains(low)) {
+                words[low >>> 6] &= ~(1L << low);
+                cardinality--;
+            }
+            return cardinality > ARRAY_LIMIT ? this : toArrayChunk();
+        }
+
+        @Override
+        char select(int rank) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                int count = Long.bitCount(words[i]);
+                if (rank < count) {
+                    long word = words[i];
+                    for (int k = 0; k < rank; k++) {
+                        word &= word - 1;
+                    }
+                    return (char) (i << 6 | Long.numberOfTrailingZeros(word));
+                }
+                rank -= count;
+            }
+            throw new IllegalStateException("cardinality is out of date");
+        }
+
+        @Override
+        int rank(char low) {
+            int rank = 0;
+            for (int i = 0; i < low >>> 6; i++) {
+                rank += Long.bitCount(words[i]);
+            }
+            return rank + Long.bitCount(words[low >>> 6] & (1L << low) - 1);
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    consumer.accept(high | i << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        Chunk copy() {
+            return new BitmapChunk(words.clone(), cardinality);
+        }
+
+        @Override
+        long[] toWords() {
+            return words.clone();
+        }
+
+        /**
+         * convert this chunk to a sparse chunk
+         *
+         * @return an array chunk with the same values
+         */
+        ArrayChunk toArrayChunk() {
+            ArrayChunk result = new ArrayChunk();
+            result.values = new char[Math.max(cardinality, 1)];
+            forEach(0, low -> result.values[result.cardinality++] = (char) low);
+            return result;
+        }
+
+        @Override
+        void writeTo(DataOutput out) throws IOException {
+            out.writeChar(cardinality - 1);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+    }
+}
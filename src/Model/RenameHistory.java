@@ -0,0 +1,626 @@
+package Model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * a binary history of the renames of the photos that can be looked up by photo id and time using singleton
+ * pattern
+ * The renames are appended to segment files "renames.sequence.log" in the order they happen. When a segment
+ * grows past SEGMENT_BYTES a new one is started, and the old one gets an index file "renames.sequence.idx"
+ * with the earliest and the latest time of its renames, followed by the photo id, the offset and the time of
+ * every record, sorted by photo id. Looking up the history of a photo skips the segments outside the time
+ * range, reads the index entries of that photo and then only its records in the time range, newest segment
+ * first, so a page of the history never loads the whole log. Segments past MAX_SEGMENTS or older than
+ * RETENTION_DAYS are deleted
+ * <p>
+ * A record is its length, the CRC32 of its payload and the payload: the photo id, the time, the old name and
+ * the new name. The newest segment has no index file, its index is kept in memory and rebuilt when the
+ * history is opened, where a record that was cut short by a crash is cut off
+ *
+ * @author Shiyi Tao, Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+public class RenameHistory {
+
+    /**
+     * the first four bytes of a segment file, "IVRN"
+     */
+    private static final int MAGIC = 0x4956524E;
+    /**
+     * the version of the segment format
+     */
+    private static final int VERSION = 1;
+    /**
+     * the size of the header of a segment file
+     */
+    private static final int HEADER_SIZE = 8;
+    /**
+     * the size of the length and the checksum in front of every record
+     */
+    private static final int RECORD_HEADER_SIZE = 8;
+    /**
+     * the first four bytes of an index file, "IVRI"
+     */
+    private static final int INDEX_MAGIC = 0x49565249;
+    /**
+     * the size of the header of an index file, the magic, the version and the earliest and the latest time
+     */
+    private static final int INDEX_HEADER_SIZE = 24;
+    /**
+     * the size of an entry of an index file, the photo id, the offset and the time of the record
+     */
+    private static final int ENTRY_SIZE = 16;
+    /**
+     * a new segment is started when the newest one is larger than this
+     */
+    private static final long SEGMENT_BYTES = 8L << 20;
+    /**
+     * the largest number of segments that are kept
+     */
+    private static final int MAX_SEGMENTS = 32;
+    /**
+     * a segment whose newest rename is older than this is deleted
+     */
+    private static final long RETENTION_DAYS = 365;
+    /**
+     * the extensions of the segment files and the index files
+     */
+    private static final String LOG_EXTENSION = ".log", INDEX_EXTENSION = ".idx";
+
+    /**
+     * the singleton renameHistory object
+     */
+    private static final RenameHistory RENAME_HISTORY = new RenameHistory();
+
+    /**
+     * the folder of the segment files, null if the history is not open
+     */
+    private File directory;
+    /**
+     * the segment files that are no longer written, by their sequence number
+     */
+    private TreeMap<Long, File> closedSegments;
+    /**
+     * the sequence number of the newest segment
+     */
+    private long activeSequence;
+    /**
+     * the channel of the newest segment
+     */
+    private FileChannel active;
+    /**
+     * the index of the newest segment
+     */
+    private SegmentIndex activeIndex;
+
+    /**
+     * get the singleton renameHistory object
+     *
+     * @return the only renameHistory object
+     */
+    public static RenameHistory getRenameHistory() {
+        return RENAME_HISTORY;
+    }
+
+    /**
+     * open the history in the folder, the newest segment is written again if it is not full
+     *
+     * @param directory the folder of the segment files, it is created if it does not exist
+     * @throws IOException if the folder or the newest segment cannot be written
+     */
+    public synchronized void open(File directory) throws IOException {
+        if (this.directory != null)
+            return;
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Cannot create " + directory);
+        closedSegments = findSegments(directory);
+        Map.Entry<Long, File> newest = closedSegments.lastEntry();
+        this.directory = directory;
+        if (newest != null && newest.getValue().length() < SEGMENT_BYTES) {
+            closedSegments.remove(newest.getKey());
+            startSegment(newest.getKey());
+        } else {
+            startSegment(newest == null ? 1 : newest.getKey() + 1);
+        }
+        // a segment that was full when the application stopped may not have its index yet
+        for (Map.Entry<Long, File> segment : closedSegments.entrySet()) {
+            if (!hasIndex(segment.getKey()))
+                writeIndex(segment.getKey(), scan(segment.getValue(), null));
+        }
+        applyRetention();
+    }
+
+    /**
+     * close the newest segment, its index is rebuilt when the history is opened again
+     */
+    public synchronized void close() {
+        if (directory == null)
+            return;
+        try {
+            active.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        directory = null;
+        active = null;
+    }
+
+    /**
+     * append the renames to the newest segment, nothing is written if the history is not open
+     *
+     * @param records the renames in the order they happened
+     */
+    synchronized void append(List<RenameRecord> records) {
+        if (directory == null || records.isEmpty())
+            return;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            long offset = active.size();
+            for (RenameRecord record : records) {
+                byte[] payload = encode(record);
+                CRC32 checksum = new CRC32();
+                checksum.update(payload);
+                out.writeInt(payload.length);
+                out.writeInt((int) checksum.getValue());
+                out.write(payload);
+                activeIndex.add(record.getPhotoId(), offset, record.getTime());
+                offset += RECORD_HEADER_SIZE + payload.length;
+            }
+            active.write(ByteBuffer.wrap(bytes.toByteArray()), active.size());
+            if (active.size() >= SEGMENT_BYTES)
+                rotate();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * close the newest segment with its index and start a new one
+     *
+     * @throws IOException if the index or the new segment cannot be written
+     */
+    public synchronized void rotate() throws IOException {
+        if (directory == null)
+            return;
+        active.close();
+        writeIndex(activeSequence, activeIndex);
+        closedSegments.put(activeSequence, segmentFile(activeSequence));
+        startSegment(activeSequence + 1);
+        applyRetention();
+    }
+
+    /**
+     * get a page of the renames of a photo, newest first
+     * only the index entries of the photo and the records on the page are read
+     *
+     * @param photoId the id of the photo
+     * @param skip    the number of newer renames to skip
+     * @param limit   the largest number of renames to return
+     * @return the renames on the page, an empty list if the history is not open
+     */
+    public List<RenameRecord> getHistory(int photoId, int skip, int limit) {
+        return getHistory(photoId, Long.MIN_VALUE, Long.MAX_VALUE, skip, limit);
+    }
+
+    /**
+     * get a page of the renames of a photo in a time range, newest first
+     * the segments outside the time range are skipped, and only the index entries of the photo and the records
+     * on the page are read
+     *
+     * @param photoId the id of the photo
+     * @param from    the earliest time of a rename in milliseconds, inclusive
+     * @param to      the latest time of a rename in milliseconds, exclusive
+     * @param skip    the number of newer renames in the time range to skip
+     * @param limit   the largest number of renames to return
+     * @return the renames on the page, an empty list if the history is not open
+     */
+    public synchronized List<RenameRecord> getHistory(int photoId, long from, long to, int skip, int limit) {
+        List<RenameRecord> page = new ArrayList<>();
+        if (directory == null)
+            return page;
+        try {
+            List<Long> offsets = new ArrayList<>();
+            for (int i = 0; i < activeIndex.count; i++) {
+                long time = activeIndex.times[i];
+                if ((int) (activeIndex.keys[i] >>> 32) == photoId && time >= from && time < to)
+                    offsets.add(activeIndex.keys[i] & 0xFFFFFFFFL);
+            }
+            skip = readPage(active, offsets, skip, limit, page);
+            for (Long sequence : closedSegments.descendingKeySet()) {
+                if (page.size() >= limit)
+                    break;
+                offsets = findOffsets(sequence, photoId, from, to);
+                if (offsets.isEmpty())
+                    continue;
+                try (FileChannel segment = FileChannel.open(segmentFile(sequence).toPath(), READ)) {
+                    skip = readPage(segment, offsets, skip, limit, page);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return page;
+    }
+
+    /**
+     * read the records at the offsets from the newest to the oldest into the page
+     *
+     * @param segment the channel of the segment
+     * @param offsets the offsets of the records in the order they were written
+     * @param skip    the number of records to skip
+     * @param limit   the size of a full page
+     * @param page    the page
+     * @return the number of records that are still to be skipped
+     * @throws IOException if a record cannot be read
+     */
+    private int readPage(FileChannel segment, List<Long> offsets, int skip, int limit, List<RenameRecord> page)
+            throws IOException {
+        for (int i = offsets.size() - 1; i >= 0 && page.size() < limit; i--) {
+            if (skip > 0) {
+                skip--;
+            } else {
+                page.add(readRecord(segment, offsets.get(i)));
+            }
+        }
+        return skip;
+    }
+
+    /**
+     * find the offsets of the records of a photo in a time range in the index file of a closed segment
+     * a segment outside the time range is skipped after its header, the entries of the photo are found by
+     * binary search
+     *
+     * @param sequence the sequence number of the segment
+     * @param photoId  the id of the photo
+     * @param from     the earliest time of a rename in milliseconds, inclusive
+     * @param to       the latest time of a rename in milliseconds, exclusive
+     * @return the offsets of the records of the photo in the time range in the order they were written
+     * @throws IOException if the index file cannot be read
+     */
+    private List<Long> findOffsets(long sequence, int photoId, long from, long to) throws IOException {
+        List<Long> offsets = new ArrayList<>();
+        try (FileChannel index = FileChannel.open(indexFile(sequence).toPath(), READ)) {
+            ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+            readFully(index, header, 0);
+            if (header.getLong(8) >= to || header.getLong(16) < from)
+                return offsets;
+            ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+            long entries = (index.size() - INDEX_HEADER_SIZE) / ENTRY_SIZE;
+            long low = 0, high = entries;
+            while (low < high) {
+                long middle = (low + high) >>> 1;
+                if (readEntry(index, middle, entry).getInt(0) < photoId)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+            for (long i = low; i < entries; i++) {
+                readEntry(index, i, entry);
+                if (entry.getInt(0) != photoId)
+                    break;
+                long time = entry.getLong(8);
+                if (time >= from && time < to)
+                    offsets.add(entry.getInt(4) & 0xFFFFFFFFL);
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * read an entry of an index file
+     *
+     * @param index    the channel of the index file
+     * @param position the position of the entry
+     * @param entry    the buffer that the entry is read into
+     * @return the buffer
+     * @throws IOException if the entry cannot be read
+     */
+    private static ByteBuffer readEntry(FileChannel index, long position, ByteBuffer entry) throws IOException {
+        entry.clear();
+        while (entry.hasRemaining()) {
+            if (index.read(entry, INDEX_HEADER_SIZE + position * ENTRY_SIZE + entry.position()) < 0)
+                throw new IOException("index entry " + position + " is truncated");
+        }
+        return entry;
+    }
+
+    /**
+     * read the record at the offset of a segment
+     *
+     * @param segment the channel of the segment
+     * @param offset  the offset of the record
+     * @return the rename record
+     * @throws IOException if the record cannot be read or is corrupted
+     */
+    private static RenameRecord readRecord(FileChannel segment, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(segment, header, offset);
+        ByteBuffer payload = ByteBuffer.allocate(header.getInt(0));
+        readFully(segment, payload, offset + RECORD_HEADER_SIZE);
+        CRC32 checksum = new CRC32();
+        checksum.update(payload.array());
+        if ((int) checksum.getValue() != header.getInt(4))
+            throw new IOException("rename record at " + offset + " is corrupted");
+        return decode(payload.array());
+    }
+
+    /**
+     * fill a buffer from a position of a channel
+     *
+     * @param channel  the channel
+     * @param buffer   the buffer to fill
+     * @param position the position in the channel
+     * @throws IOException if the channel ends before the buffer is full
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("rename record at " + position + " is truncated");
+        }
+    }
+
+    /**
+     * read every complete record of a segment
+     *
+     * @param file   the segment file
+     * @param active the channel of the segment if it is written again, a torn record at the end is cut off,
+     *               null if the segment is only read
+     * @return the index of the records
+     * @throws IOException if the segment cannot be read
+     */
+    private SegmentIndex scan(File file, FileChannel active) throws IOException {
+        SegmentIndex index = new SegmentIndex();
+        long end = HEADER_SIZE;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() > VERSION)
+                throw new IOException(file + " is not a rename history segment");
+            while (true) {
+                int length = in.readInt();
+                int expected = in.readInt();
+                if (length < 0 || length > file.length() - end)
+                    break;
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                CRC32 checksum = new CRC32();
+                checksum.update(payload);
+                if ((int) checksum.getValue() != expected)
+                    break;
+                RenameRecord record = decode(payload);
+                index.add(record.getPhotoId(), end, record.getTime());
+                end += RECORD_HEADER_SIZE + length;
+            }
+        } catch (EOFException e) {
+            // the last record was cut short
+        }
+        if (active != null)
+            active.truncate(end);
+        return index;
+    }
+
+    /**
+     * open a segment for writing, its records are indexed in memory
+     *
+     * @param sequence the sequence number of the segment
+     * @throws IOException if the segment cannot be written
+     */
+    private void startSegment(long sequence) throws IOException {
+        File file = segmentFile(sequence);
+        active = FileChannel.open(file.toPath(), CREATE, READ, WRITE);
+        activeSequence = sequence;
+        if (active.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            active.write(header, 0);
+            activeIndex = new SegmentIndex();
+        } else {
+            activeIndex = scan(file, active);
+            // the segment is written again, so its old index file is out of date
+            indexFile(sequence).delete();
+        }
+    }
+
+    /**
+     * write the index of a segment into its index file, sorted by photo id and then by offset
+     *
+     * @param sequence the sequence number of the segment
+     * @param index    the index of the segment
+     * @throws IOException if the index file cannot be written
+     */
+    private void writeIndex(long sequence, SegmentIndex index) throws IOException {
+        // the offsets grow in the order the records were written, so the time of a key is found by its offset
+        long[] offsets = new long[index.count];
+        long earliest = Long.MAX_VALUE, latest = Long.MIN_VALUE;
+        for (int i = 0; i < index.count; i++) {
+            offsets[i] = index.keys[i] & 0xFFFFFFFFL;
+            earliest = Math.min(earliest, index.times[i]);
+            latest = Math.max(latest, index.times[i]);
+        }
+        long[] keys = Arrays.copyOf(index.keys, index.count);
+        Arrays.sort(keys);
+
+        File temporary = new File(directory, "renames." + sequence + INDEX_EXTENSION + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temporary)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(earliest);
+            out.writeLong(latest);
+            for (long key : keys) {
+                out.writeLong(key);
+                out.writeLong(index.times[Arrays.binarySearch(offsets, key & 0xFFFFFFFFL)]);
+            }
+        }
+        File indexFile = indexFile(sequence);
+        if (!temporary.renameTo(indexFile))
+            throw new IOException("Cannot write " + indexFile);
+    }
+
+    /**
+     * check if a closed segment has an index file with the times of its records
+     * the index files of older versions have no times, they are written again
+     *
+     * @param sequence the sequence number of the segment
+     * @return if the index file can be used
+     */
+    private boolean hasIndex(long sequence) {
+        File index = indexFile(sequence);
+        if (!index.exists())
+            return false;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(index))) {
+            return in.readInt() == INDEX_MAGIC && in.readInt() <= VERSION;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * delete the oldest closed segments past MAX_SEGMENTS and the ones older than RETENTION_DAYS
+     */
+    private void applyRetention() {
+        long oldest = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(RETENTION_DAYS);
+        while (!closedSegments.isEmpty()) {
+            Map.Entry<Long, File> segment = closedSegments.firstEntry();
+            if (closedSegments.size() + 1 <= MAX_SEGMENTS && segment.getValue().lastModified() >= oldest)
+                break;
+            segment.getValue().delete();
+            indexFile(segment.getKey()).delete();
+            closedSegments.remove(segment.getKey());
+        }
+    }
+
+    /**
+     * find the segment files in a folder
+     *
+     * @param directory the folder
+     * @return the segment files by their sequence number
+     */
+    private static TreeMap<Long, File> findSegments(File directory) {
+        TreeMap<Long, File> segments = new TreeMap<>();
+        File[] files = directory.listFiles();
+        if (files == null)
+            return segments;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith("renames.") && name.endsWith(LOG_EXTENSION)) {
+                try {
+                    segments.put(Long.parseLong(name.substring(8, name.length() - LOG_EXTENSION.length())), file);
+                } catch (NumberFormatException e) {
+                    // not a segment file
+                }
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * get the segment file of a sequence number
+     *
+     * @param sequence the sequence number
+     * @return the segment file
+     */
+    private File segmentFile(long sequence) {
+        return new File(directory, "renames." + sequence + LOG_EXTENSION);
+    }
+
+    /**
+     * get the index file of a sequence number
+     *
+     * @param sequence the sequence number
+     * @return the index file
+     */
+    private File indexFile(long sequence) {
+        return new File(directory, "renames." + sequence + INDEX_EXTENSION);
+    }
+
+    /**
+     * encode the payload of a record
+     *
+     * @param record the rename record
+     * @return the payload
+     * @throws IOException never, the payload is written to memory
+     */
+    private static byte[] encode(RenameRecord record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        CatalogFormat.writeVarint(out, record.getPhotoId());
+        out.writeLong(record.getTime());
+        CatalogFormat.writeString(out, record.getPreviousName());
+        CatalogFormat.writeString(out, record.getNewName());
+        return bytes.toByteArray();
+    }
+
+    /**
+     * decode the payload of a record
+     *
+     * @param payload the payload
+     * @return the rename record
+     * @throws IOException if the payload is not a record
+     */
+    private static RenameRecord decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        int photoId = CatalogFormat.readVarint(in);
+        long time = in.readLong();
+        String previousName = CatalogFormat.readString(in);
+        return new RenameRecord(photoId, previousName, CatalogFormat.readString(in), time);
+    }
+
+    /**
+     * the index entries of a segment in the order the records were written
+     */
+    private static class SegmentIndex {
+        /**
+         * the photo id in the high half and the offset of the record in the low half
+         */
+        private long[] keys = new long[64];
+        /**
+         * the time of every record
+         */
+        private long[] times = new long[64];
+        /**
+         * the number of entries
+         */
+        private int count;
+
+        /**
+         * add the entry of the next record
+         *
+         * @param photoId the id of the photo of the record
+         * @param offset  the offset of the record
+         * @param time    the time of the rename
+         */
+        void add(int photoId, long offset, long time) {
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+                times = Arrays.copyOf(times, count * 2);
+            }
+            keys[count] = (long) photoId << 32 | offset;
+            times[count++] = time;
+        }
+    }
+}
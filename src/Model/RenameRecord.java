@@ -0,0 +1,91 @@
+package Model;
+
+import java.text.DateFormat;
+import java.util.Date;
+
+/**
+ * a rename of a photo file, as it is written to the name log and the rename history
+ *
+ * @author Shiyi Tao
+ * @version 2.0
+ * @since 2017-11-30
+ */
+public final class RenameRecord {
+    /**
+     * the id of the renamed photo
+     */
+    private final int photoId;
+    /**
+     * the file name before the rename
+     */
+    private final String previousName;
+    /**
+     * the file name after the rename
+     */
+    private final String newName;
+    /**
+     * the time of the rename in milliseconds since the epoch
+     */
+    private final long time;
+
+    /**
+     * create a rename record
+     *
+     * @param photoId      the id of the renamed photo
+     * @param previousName the file name before the rename
+     * @param newName      the file name after the rename
+     * @param time         the time of the rename in milliseconds since the epoch
+     */
+    RenameRecord(int photoId, String previousName, String newName, long time) {
+        this.photoId = photoId;
+        this.previousName = previousName;
+        this.newName = newName;
+        this.time = time;
+    }
+
+    /**
+     * get the id of the renamed photo
+     *
+     * @return the id of the renamed photo
+     */
+    public int getPhotoId() {
+        return photoId;
+    }
+
+    /**
+     * get the file name before the rename
+     *
+     * @return the file name before the rename
+     */
+    public String getPreviousName() {
+        return previousName;
+    }
+
+    /**
+     * get the file name after the rename
+     *
+     * @return the file name after the rename
+     */
+    public String getNewName() {
+        return newName;
+    }
+
+    /**
+     * get the time of the rename
+     *
+     * @return the time of the rename in milliseconds since the epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * String representation of this object
+     *
+     * @return the time, the old name and the new name
+     */
+    @Override
+    public String toString() {
+        return DateFormat.getDateTimeInstance().format(new Date(time)) + "  " + previousName + " -> " + newName;
+    }
+}
@@ -1,5 +1,7 @@
 package Model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -17,9 +19,9 @@ public class Tag implements Serializable {
      */
     private String tagName;
     /**
-     * all images that are related to this tag
+     * the id of the tag name in the tag table, every tag object with the same name has the same id
      */
-    private List<Photo> allPhotos;
+    private transient int id;
 
     /**
      * instantiate a new tag object
@@ -28,7 +30,26 @@ public class Tag implements Serializable {
      */
     public Tag(String name) {
         this.tagName = name;
-        this.allPhotos = new ArrayList<>();
+        this.id = TagTable.getTagTable().intern(name);
+    }
+
+    /**
+     * intern the tag name again after the tag is deserialized, since the ids only live as long as the program
+     *
+     * @param in the stream that the tag is read from
+     * @throws IOException            if the stream cannot be read
+     * @throws ClassNotFoundException if a class of the serialized data cannot be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.id = TagTable.getTagTable().intern(tagName);
+    }
+
+    /**
+     * @return the id of the tag name
+     */
+    public int getId() {
+        return id;
     }
 
     /**
@@ -39,30 +60,37 @@ public class Tag implements Serializable {
     }
 
     /**
-     * @return List representation of the photo list
+     * @return List representation of the photos in the database that are related to this tag
      */
     public List<Photo> getAllPhotos() {
+        Database database = Database.getDatabase();
+        PhotoBitmap photoIds = getPhotoIds();
+        List<Photo> allPhotos = new ArrayList<>(photoIds.cardinality());
+        photoIds.forEach(id -> {
+            Photo photo = database.getPhoto(id);
+            if (photo != null)
+                allPhotos.add(photo);
+        });
         return allPhotos;
     }
 
     /**
-     * add an photo to this tag
+     * get the ids of the photos in the database that are related to this tag
+     * Note: the returned set is the posting list of this tag in the database and should not be modified
      *
-     * @param photo an image instance
+     * @return the set of photo ids
      */
-    public void addPhoto(Photo photo) {
-        if (!allPhotos.contains(photo))
-            this.allPhotos.add(photo);
+    PhotoBitmap getPhotoIds() {
+        return Database.getDatabase().getPostings(id);
     }
 
     /**
-     * remove a photo from this tag
+     * get the number of photos in the database that are related to this tag
      *
-     * @param oldPhoto the old image that need to be deleted
+     * @return the number of photos
      */
-    public void deletePhoto(Photo oldPhoto) {
-        if (allPhotos.contains(oldPhoto))
-            this.allPhotos.remove(oldPhoto);
+    public int getPhotoCount() {
+        return getPhotoIds().cardinality();
     }
 
     /**
@@ -75,7 +103,17 @@ public class Tag implements Serializable {
      */
     @Override
     public boolean equals(Object other) {
-        return other instanceof Tag && ((Tag) other).getTagName().equals(this.getTagName());
+        return other instanceof Tag && ((Tag) other).getId() == this.getId();
+    }
+
+    /**
+     * the hash code of a tag is its id, so two tags with the same name have the same hash code
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return id;
     }
 
     /**
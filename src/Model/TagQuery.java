@@ -0,0 +1,369 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * a boolean query over the tags of the photos in the database, e.g. "@family AND (@beach OR NOT @2016)"
+ * The query is evaluated on the posting lists of the tags, the operands of AND and OR are evaluated
+ * from the smallest to the largest posting list so that the intermediate results stay small
+ * <p>
+ * Grammar (NOT binds tighter than AND, AND binds tighter than OR, two terms next to each other mean AND):
+ * <pre>
+ * or   := and ("OR" and)*
+ * and  := not ("AND"? not)*
+ * not  := "NOT" not | "(" or ")" | tagName
+ * </pre>
+ * The keywords are case insensitive, "&amp;", "|" and "!" can be used instead of them,
+ * and the "@" symbol in front of a tag name is optional
+ *
+ * @author Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+public abstract class TagQuery {
+
+    /**
+     * parse a query expression
+     *
+     * @param expression the query expression
+     * @return the parsed query
+     * @throws IllegalArgumentException if the expression is not a valid query
+     */
+    public static TagQuery parse(String expression) {
+        Parser parser = new Parser(expression);
+        TagQuery query = parser.parseOr();
+        if (parser.peek() != null)
+            throw new IllegalArgumentException("Unexpected \"" + parser.peek() + "\" in the query");
+        return query;
+    }
+
+    /**
+     * create a query that matches the photos that have the tag
+     *
+     * @param tagName the tag name, with or without the "@" symbol
+     * @return the query
+     */
+    public static TagQuery tag(String tagName) {
+        return new TagTerm(tagName.startsWith("@") ? tagName : "@" + tagName);
+    }
+
+    /**
+     * create a query that matches the photos that have any of the tags
+     *
+     * @param tags a collection of tags
+     * @return the query
+     */
+    public static TagQuery anyOf(Collection<Tag> tags) {
+        List<TagQuery> terms = new ArrayList<>();
+        for (Tag tag : tags) {
+            if (tag != null)
+                terms.add(tag(tag.getTagName()));
+        }
+        return new Or(terms);
+    }
+
+    /**
+     * create a query that matches the photos that have all of the tags
+     *
+     * @param tags a collection of tags
+     * @return the query
+     */
+    public static TagQuery allOf(Collection<Tag> tags) {
+        List<TagQuery> terms = new ArrayList<>();
+        for (Tag tag : tags) {
+            if (tag != null)
+                terms.add(tag(tag.getTagName()));
+        }
+        return new And(terms);
+    }
+
+    /**
+     * evaluate this query against all the photos in the database
+     *
+     * @param database the database to search
+     * @return the matched photos in the order of their ids
+     */
+    public TagQueryResult evaluate(Database database) {
+        PhotoBitmap all = database.getAllPhotoIds();
+        return new TagQueryResult(database, PhotoBitmap.and(evaluate(database, all), all));
+    }
+
+    /**
+     * evaluate this query into a set of photo ids
+     *
+     * @param database the database to search
+     * @param all      the ids of all the photos in the database
+     * @return the set of matched photo ids, it may be a posting list of a tag and should not be modified
+     */
+    abstract PhotoBitmap evaluate(Database database, PhotoBitmap all);
+
+    /**
+     * estimate the number of photos this query matches without evaluating it
+     *
+     * @param database the database to search
+     * @param total    the number of photos in the database
+     * @return the estimated number of matched photos
+     */
+    abstract int estimate(Database database, int total);
+
+    /**
+     * sort the operands from the smallest estimated result to the largest
+     *
+     * @param terms    the operands
+     * @param database the database to search
+     * @param total    the number of photos in the database
+     * @return the sorted operands
+     */
+    private static List<TagQuery> byEstimate(List<TagQuery> terms, Database database, int total) {
+        List<TagQuery> sorted = new ArrayList<>(terms);
+        sorted.sort(Comparator.comparingInt(term -> term.estimate(database, total)));
+        return sorted;
+    }
+
+    /**
+     * a query that matches the photos with a tag
+     */
+    private static class TagTerm extends TagQuery {
+        /**
+         * the tag name with the "@" symbol
+         */
+        private final String tagName;
+
+        TagTerm(String tagName) {
+            this.tagName = tagName;
+        }
+
+        @Override
+        PhotoBitmap evaluate(Database database, PhotoBitmap all) {
+            Tag tag = database.getTag(tagName);
+            return tag == null ? new PhotoBitmap() : database.getPostings(tag.getId());
+        }
+
+        @Override
+        int estimate(Database database, int total) {
+            Tag tag = database.getTag(tagName);
+            return tag == null ? 0 : database.getPostings(tag.getId()).cardinality();
+        }
+
+        @Override
+        public String toString() {
+            return tagName;
+        }
+    }
+
+    /**
+     * a query that matches the photos that do not match the operand
+     */
+    private static class Not extends TagQuery {
+        /**
+         * the operand
+         */
+        private final TagQuery term;
+
+        Not(TagQuery term) {
+            this.term = term;
+        }
+
+        @Override
+        PhotoBitmap evaluate(Database database, PhotoBitmap all) {
+            return PhotoBitmap.andNot(all, term.evaluate(database, all));
+        }
+
+        @Override
+        int estimate(Database database, int total) {
+            return total - term.estimate(database, total);
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + term;
+        }
+    }
+
+    /**
+     * a query that matches the photos that match all the operands
+     */
+    private static class And extends TagQuery {
+        /**
+         * the operands
+         */
+        private final List<TagQuery> terms;
+
+        And(List<TagQuery> terms) {
+            this.terms = terms;
+        }
+
+        @Override
+        PhotoBitmap evaluate(Database database, PhotoBitmap all) {
+            List<TagQuery> sorted = byEstimate(terms, database, all.cardinality());
+            PhotoBitmap result = null;
+            for (TagQuery term : sorted) {
+                if (result != null && result.isEmpty())
+                    break;
+                if (term instanceof Not && result != null) {
+                    // subtract the operand instead of intersecting with its complement
+                    result = PhotoBitmap.andNot(result, ((Not) term).term.evaluate(database, all));
+                } else {
+                    PhotoBitmap matched = term.evaluate(database, all);
+                    result = result == null ? matched : PhotoBitmap.and(result, matched);
+                }
+            }
+            return result == null ? all : result;
+        }
+
+        @Override
+        int estimate(Database database, int total) {
+            int min = total;
+            for (TagQuery term : terms) {
+                min = Math.min(min, term.estimate(database, total));
+            }
+            return min;
+        }
+
+        @Override
+        public String toString() {
+            return join(terms, " AND ");
+        }
+    }
+
+    /**
+     * a query that matches the photos that match any of the operands
+     */
+    private static class Or extends TagQuery {
+        /**
+         * the operands
+         */
+        private final List<TagQuery> terms;
+
+        Or(List<TagQuery> terms) {
+            this.terms = terms;
+        }
+
+        @Override
+        PhotoBitmap evaluate(Database database, PhotoBitmap all) {
+            List<TagQuery> sorted = byEstimate(terms, database, all.cardinality());
+            PhotoBitmap result = new PhotoBitmap();
+            for (TagQuery term : sorted) {
+                result = PhotoBitmap.or(result, term.evaluate(database, all));
+                // the posting lists only hold photos of the database, so every photo is matched
+                if (result.cardinality() == all.cardinality())
+                    break;
+            }
+            return result;
+        }
+
+        @Override
+        int estimate(Database database, int total) {
+            long sum = 0;
+            for (TagQuery term : terms) {
+                sum += term.estimate(database, total);
+            }
+            return (int) Math.min(sum, total);
+        }
+
+        @Override
+        public String toString() {
+            return join(terms, " OR ");
+        }
+    }
+
+    /**
+     * String representation of a group of operands
+     *
+     * @param terms     the operands
+     * @param separator the operator between the operands
+     * @return the operands in parentheses
+     */
+    private static String join(List<TagQuery> terms, String separator) {
+        StringBuilder result = new StringBuilder("(");
+        for (int i = 0; i < terms.size(); i++) {
+            if (i > 0)
+                result.append(separator);
+            result.append(terms.get(i));
+        }
+        return result.append(")").toString();
+    }
+
+    /**
+     * a recursive descent parser of the query grammar
+     */
+    private static class Parser {
+        /**
+         * the tokens of the expression
+         */
+        private final List<String> tokens = new ArrayList<>();
+        /**
+         * the index of the next token
+         */
+        private int position = 0;
+
+        Parser(String expression) {
+            StringBuilder word = new StringBuilder();
+            for (char c : expression.toCharArray()) {
+                if (Character.isWhitespace(c) || "()&|!".indexOf(c) >= 0) {
+                    if (word.length() > 0)
+                        tokens.add(word.toString());
+                    word.setLength(0);
+                    if (!Character.isWhitespace(c))
+                        tokens.add(String.valueOf(c));
+                } else {
+                    word.append(c);
+                }
+            }
+            if (word.length() > 0)
+                tokens.add(word.toString());
+        }
+
+        String peek() {
+            return position < tokens.size() ? tokens.get(position) : null;
+        }
+
+        boolean accept(String keyword, String symbol) {
+            String token = peek();
+            if (token != null && (token.equalsIgnoreCase(keyword) || token.equals(symbol))) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        TagQuery parseOr() {
+            List<TagQuery> terms = new ArrayList<>();
+            terms.add(parseAnd());
+            while (accept("OR", "|")) {
+                terms.add(parseAnd());
+            }
+            return terms.size() == 1 ? terms.get(0) : new Or(terms);
+        }
+
+        TagQuery parseAnd() {
+            List<TagQuery> terms = new ArrayList<>();
+            terms.add(parseNot());
+            while (peek() != null && !peek().equals(")") && !peek().equals("|") && !peek().equalsIgnoreCase("OR")) {
+                accept("AND", "&");
+                terms.add(parseNot());
+            }
+            return terms.size() == 1 ? terms.get(0) : new And(terms);
+        }
+
+        TagQuery parseNot() {
+            if (accept("NOT", "!"))
+                return new Not(parseNot());
+            if (accept("(", "(")) {
+                TagQuery query = parseOr();
+                if (!accept(")", ")"))
+                    throw new IllegalArgumentException("Missing \")\" in the query");
+                return query;
+            }
+            String token = peek();
+            if (token == null || token.equals(")") || token.equals("&") || token.equals("|")
+                    || token.equalsIgnoreCase("AND") || token.equalsIgnoreCase("OR"))
+                throw new IllegalArgumentException("Missing tag name in the query");
+            position++;
+            return tag(token);
+        }
+    }
+}
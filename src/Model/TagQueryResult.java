@@ -0,0 +1,101 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+/**
+ * the result of a tag query
+ * The result only keeps the matched photo ids, photo objects are looked up a page at a time
+ * so that a large result does not have to be turned into a list of photos up front
+ *
+ * @author Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+public class TagQueryResult {
+
+    /**
+     * the database that the photos are looked up in
+     */
+    private final Database database;
+    /**
+     * the ids of the matched photos
+     */
+    private final PhotoBitmap photoIds;
+
+    /**
+     * create a query result
+     *
+     * @param database the database that the photos are looked up in
+     * @param photoIds the ids of the matched photos
+     */
+    TagQueryResult(Database database, PhotoBitmap photoIds) {
+        this.database = database;
+        this.photoIds = photoIds;
+    }
+
+    /**
+     * get the number of matched photos
+     *
+     * @return the number of matched photos
+     */
+    public int size() {
+        return photoIds.cardinality();
+    }
+
+    /**
+     * check if the query matched any photo
+     *
+     * @return if no photo is matched
+     */
+    public boolean isEmpty() {
+        return photoIds.isEmpty();
+    }
+
+    /**
+     * check if the photo is matched by the query
+     *
+     * @param photo the photo object
+     * @return if the photo is in the result
+     */
+    public boolean contains(Photo photo) {
+        return photoIds.contains(photo.getId());
+    }
+
+    /**
+     * get the index of the photo in the matched photos
+     *
+     * @param photo the photo object
+     * @return the index of the photo, -1 if the photo is not in the result
+     */
+    public int indexOf(Photo photo) {
+        return contains(photo) ? photoIds.rank(photo.getId()) : -1;
+    }
+
+    /**
+     * get a page of the matched photos
+     *
+     * @param fromIndex the index of the first photo of the page
+     * @param pageSize  the largest number of photos in the page
+     * @return the photos of the page, smaller than the page size if it is the last page
+     */
+    public List<Photo> getPage(int fromIndex, int pageSize) {
+        int toIndex = Math.min(size(), fromIndex + pageSize);
+        List<Photo> page = new ArrayList<>(Math.max(toIndex - fromIndex, 0));
+        PrimitiveIterator.OfInt ids = photoIds.iterator(fromIndex);
+        for (int i = fromIndex; i < toIndex; i++) {
+            page.add(database.getPhoto(ids.nextInt()));
+        }
+        return page;
+    }
+
+    /**
+     * get all the matched photos
+     *
+     * @return a list of all the matched photos
+     */
+    public List<Photo> getAll() {
+        return getPage(0, size());
+    }
+}
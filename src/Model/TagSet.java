@@ -0,0 +1,179 @@
+package Model;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * an immutable set of tags that is stored as a sorted array of tag ids
+ * Tag sets are interned by the TagSetStore, so every photo and photo history that has the same set of tags
+ * shares the same TagSet object.
+ * contains and getTagId do not create any object, so a tag set can be checked and walked by index cheaply
+ *
+ * @author Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+public class TagSet extends AbstractSet<Tag> implements Serializable {
+
+    /**
+     * the version of the serialized form
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * the id of this set in the tag set store
+     */
+    private transient int id;
+    /**
+     * the sorted ids of the tags in this set
+     */
+    private transient int[] tagIds;
+
+    /**
+     * create a tag set, only the tag set store creates tag sets
+     *
+     * @param id     the id of this set in the tag set store
+     * @param tagIds the sorted ids of the tags
+     */
+    TagSet(int id, int[] tagIds) {
+        this.id = id;
+        this.tagIds = tagIds;
+    }
+
+    /**
+     * get the id of this set in the tag set store
+     *
+     * @return the id of this tag set
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * get the id of the tag at the index, the ids are in ascending order
+     *
+     * @param index the index of the tag
+     * @return the tag id
+     */
+    public int getTagId(int index) {
+        return tagIds[index];
+    }
+
+    /**
+     * get the sorted tag ids of this set
+     * Note: the returned array is the array of this set itself and should not be modified
+     *
+     * @return the sorted tag ids
+     */
+    int[] getTagIds() {
+        return tagIds;
+    }
+
+    /**
+     * check if the set has the tag id
+     *
+     * @param tagId the tag id
+     * @return if the tag is in this set
+     */
+    public boolean containsTagId(int tagId) {
+        return Arrays.binarySearch(tagIds, tagId) >= 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Tag && containsTagId(((Tag) o).getId());
+    }
+
+    @Override
+    public int size() {
+        return tagIds.length;
+    }
+
+    @Override
+    public Iterator<Tag> iterator() {
+        return new Iterator<Tag>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < tagIds.length;
+            }
+
+            @Override
+            public Tag next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return TagTable.getTagTable().getTag(tagIds[index++]);
+            }
+        };
+    }
+
+    /**
+     * two tag sets are equal if they have the same tags, a tag set is also equal to any other set of these tags
+     *
+     * @param o the other object
+     * @return if the other object is a set with the same tags
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof TagSet)
+            return this == o || Arrays.equals(tagIds, ((TagSet) o).tagIds);
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        // same as the hash code of any other set of these tags
+        int hashCode = 0;
+        for (int tagId : tagIds) {
+            hashCode += tagId;
+        }
+        return hashCode;
+    }
+
+    /**
+     * write the tag names since the tag ids only live as long as the program
+     *
+     * @param out the stream that the set is written to
+     * @throws IOException if the stream cannot be written
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(tagIds.length);
+        for (int tagId : tagIds) {
+            out.writeUTF(TagTable.getTagTable().getName(tagId));
+        }
+    }
+
+    /**
+     * read the tag names and intern them again
+     *
+     * @param in the stream that the set is read from
+     * @throws IOException            if the stream cannot be read
+     * @throws ClassNotFoundException if a class of the serialized data cannot be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        tagIds = new int[in.readInt()];
+        for (int i = 0; i < tagIds.length; i++) {
+            tagIds[i] = TagTable.getTagTable().intern(in.readUTF());
+        }
+    }
+
+    /**
+     * replace the deserialized set with the shared set from the store
+     *
+     * @return the interned tag set
+     * @throws ObjectStreamException never
+     */
+    private Object readResolve() throws ObjectStreamException {
+        return TagSetStore.getTagSetStore().intern(tagIds);
+    }
+}
@@ -0,0 +1,189 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * a store of interned tag sets using singleton pattern
+ * Every distinct set of tags is stored once and given a dense int id, so the tag history of a photo
+ * is a small list of ids instead of a list of its own copies of the same sets
+ *
+ * @author Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+public class TagSetStore {
+
+    /**
+     * the singleton tagSetStore object
+     */
+    private static final TagSetStore TAG_SET_STORE = new TagSetStore();
+    /**
+     * the id of the empty tag set
+     */
+    static final int EMPTY_SET_ID = 0;
+    /**
+     * the id of every stored set, by the sorted tag ids of the set
+     */
+    private HashMap<IdArray, Integer> idsBySet;
+    /**
+     * every stored set, the id of the set is the index of the list
+     */
+    private List<TagSet> setsById;
+
+    /**
+     * create a tag set store that only has the empty set
+     */
+    private TagSetStore() {
+        idsBySet = new HashMap<>();
+        setsById = new ArrayList<>();
+        intern(new int[0]);
+    }
+
+    /**
+     * get the singleton tagSetStore object
+     *
+     * @return the only tagSetStore object
+     */
+    public static TagSetStore getTagSetStore() {
+        return TAG_SET_STORE;
+    }
+
+    /**
+     * get the shared tag set with the tags
+     *
+     * @param tags a collection of tags
+     * @return the interned tag set
+     */
+    public TagSet intern(Collection<Tag> tags) {
+        int[] tagIds = new int[tags.size()];
+        int i = 0;
+        for (Tag tag : tags) {
+            tagIds[i++] = tag.getId();
+        }
+        return intern(tagIds);
+    }
+
+    /**
+     * get the shared tag set with the tag ids
+     *
+     * @param tagIds the tag ids in any order, duplicated ids are ignored
+     * @return the interned tag set
+     */
+    TagSet intern(int[] tagIds) {
+        int[] sorted = tagIds.clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1])
+                sorted[size++] = sorted[i];
+        }
+        return internSorted(size == sorted.length ? sorted : Arrays.copyOf(sorted, size));
+    }
+
+    /**
+     * get the shared tag set with one more tag
+     *
+     * @param set   a stored tag set
+     * @param tagId the id of the tag to add
+     * @return the interned tag set with the tag, the same set if it already has the tag
+     */
+    public TagSet with(TagSet set, int tagId) {
+        int[] tagIds = set.getTagIds();
+        int index = Arrays.binarySearch(tagIds, tagId);
+        if (index >= 0)
+            return set;
+        index = -index - 1;
+        int[] result = new int[tagIds.length + 1];
+        System.arraycopy(tagIds, 0, result, 0, index);
+        result[index] = tagId;
+        System.arraycopy(tagIds, index, result, index + 1, tagIds.length - index);
+        return internSorted(result);
+    }
+
+    /**
+     * get the shared tag set with one less tag
+     *
+     * @param set   a stored tag set
+     * @param tagId the id of the tag to remove
+     * @return the interned tag set without the tag, the same set if it does not have the tag
+     */
+    public TagSet without(TagSet set, int tagId) {
+        int[] tagIds = set.getTagIds();
+        int index = Arrays.binarySearch(tagIds, tagId);
+        if (index < 0)
+            return set;
+        int[] result = new int[tagIds.length - 1];
+        System.arraycopy(tagIds, 0, result, 0, index);
+        System.arraycopy(tagIds, index + 1, result, index, tagIds.length - index - 1);
+        return internSorted(result);
+    }
+
+    /**
+     * get the shared tag set with the sorted tag ids
+     *
+     * @param sorted the tag ids in ascending order without duplicates, the array is kept by the store
+     * @return the interned tag set
+     */
+    private synchronized TagSet internSorted(int[] sorted) {
+        IdArray key = new IdArray(sorted);
+        Integer id = idsBySet.get(key);
+        if (id == null) {
+            id = setsById.size();
+            setsById.add(new TagSet(id, key.ids));
+            idsBySet.put(key, id);
+        }
+        return setsById.get(id);
+    }
+
+    /**
+     * get the tag set by its id
+     *
+     * @param id the id of a stored tag set
+     * @return the tag set
+     */
+    public synchronized TagSet get(int id) {
+        return setsById.get(id);
+    }
+
+    /**
+     * get the number of stored tag sets
+     *
+     * @return the number of distinct tag sets
+     */
+    public synchronized int size() {
+        return setsById.size();
+    }
+
+    /**
+     * a sorted array of tag ids that can be used as a hash map key
+     */
+    private static class IdArray {
+        /**
+         * the sorted tag ids
+         */
+        private final int[] ids;
+        /**
+         * the hash code of the ids
+         */
+        private final int hashCode;
+
+        IdArray(int[] ids) {
+            this.ids = ids;
+            this.hashCode = Arrays.hashCode(ids);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IdArray && Arrays.equals(ids, ((IdArray) o).ids);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * a symbol table that interns every tag name to a dense int id using singleton pattern
+ * The ids are given out in order starting from 0 and a name keeps its id for the rest of the program,
+ * so they can be used as array indexes and map keys instead of the tag names
+ *
+ * @author Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+class TagTable {
+
+    /**
+     * the singleton tagTable object
+     */
+    private static final TagTable TAG_TABLE = new TagTable();
+    /**
+     * the id of every interned tag name
+     */
+    private HashMap<String, Integer> idsByName;
+    /**
+     * the tag name of every id, the id is the index of the list
+     */
+    private List<String> namesById;
+    /**
+     * a shared tag object for each id, created when it is first asked for
+     */
+    private List<Tag> tagsById;
+
+    /**
+     * create an empty tag table
+     */
+    private TagTable() {
+        idsByName = new HashMap<>();
+        namesById = new ArrayList<>();
+        tagsById = new ArrayList<>();
+    }
+
+    /**
+     * get the singleton tagTable object
+     *
+     * @return the only tagTable object
+     */
+    static TagTable getTagTable() {
+        return TAG_TABLE;
+    }
+
+    /**
+     * get the id of the tag name, a new id is given if the name has not been seen before
+     *
+     * @param tagName the tag name with "@" symbol
+     * @return the id of the tag name
+     */
+    synchronized int intern(String tagName) {
+        Integer id = idsByName.get(tagName);
+        if (id == null) {
+            id = namesById.size();
+            namesById.add(tagName);
+            tagsById.add(null);
+            idsByName.put(tagName, id);
+        }
+        return id;
+    }
+
+    /**
+     * get the id of the tag name without interning it
+     *
+     * @param tagName the tag name with "@" symbol
+     * @return the id of the tag name, -1 if the name has never been interned
+     */
+    synchronized int getId(String tagName) {
+        Integer id = idsByName.get(tagName);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * get the tag name of the id
+     *
+     * @param id an interned tag id
+     * @return the tag name of this id
+     */
+    synchronized String getName(int id) {
+        return namesById.get(id);
+    }
+
+    /**
+     * get a tag object of the id
+     *
+     * @param id an interned tag id
+     * @return the shared tag object with this id
+     */
+    synchronized Tag getTag(int id) {
+        Tag tag = tagsById.get(id);
+        if (tag == null) {
+            tag = new Tag(namesById.get(id));
+            tagsById.set(id, tag);
+        }
+        return tag;
+    }
+
+    /**
+     * get the number of interned tag names, every id is smaller than this number
+     *
+     * @return the number of interned tag names
+     */
+    synchronized int size() {
+        return namesById.size();
+    }
+}
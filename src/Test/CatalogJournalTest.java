@@ -0,0 +1,222 @@
+package Test;
+
+import Model.ApplicationDeserializer;
+import Model.CatalogJournal;
+import Model.Database;
+import Model.DatabaseManager;
+import Model.Photo;
+import Model.Tag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Test class for CatalogJournal.java
+ *
+ * @author Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+class CatalogJournalTest {
+
+    /**
+     * the database, the journal and the test objects
+     */
+    private Database db;
+    private DatabaseManager dbManager;
+    private CatalogJournal journal;
+    private Tag family, beach;
+    private File folder;
+    private String catalogName, photoFolder;
+
+    /**
+     * open the journal in a new folder
+     */
+    @BeforeEach
+    void beforeEach() throws IOException {
+        db = Database.getDatabase();
+        dbManager = DatabaseManager.getDbManager();
+        journal = CatalogJournal.getJournal();
+        family = new Tag("@family");
+        beach = new Tag("@beach");
+        photoFolder = "D:" + File.separator + "s" + File.separator;
+
+        folder = Files.createTempDirectory("journal").toFile();
+        catalogName = folder.getPath() + File.separator + "Database";
+        journal.open(catalogName);
+    }
+
+    /**
+     * close the journal, clean up the database and the files after each test
+     */
+    @AfterEach
+    void afterEach() {
+        journal.close();
+        db.clear();
+        for (File file : folder.listFiles()) {
+            file.delete();
+        }
+        folder.delete();
+    }
+
+    /**
+     * add a photo with @family and then add @beach to it
+     *
+     * @return the photo
+     */
+    private Photo addPhoto() {
+        db.addCurrentExistingTag(family);
+        Photo photo = new Photo(photoFolder + "pic1 @family.jpg", Arrays.asList(family));
+        db.addPhoto(photo);
+        dbManager.addTags(photo, Arrays.asList(beach));
+        return photo;
+    }
+
+    /**
+     * get the journal files in the folder
+     *
+     * @return the journal files
+     */
+    private List<File> getJournalFiles() {
+        List<File> journalFiles = new ArrayList<>();
+        for (File file : folder.listFiles()) {
+            if (file.getName().contains(".journal."))
+                journalFiles.add(file);
+        }
+        return journalFiles;
+    }
+
+    /**
+     * the changes after the journal is opened are read back from the journal
+     */
+    @Test
+    void testReplay() {
+        Photo photo = addPhoto();
+        journal.close();
+
+        Database loaded = ApplicationDeserializer.getDeserializer().deserialize(catalogName);
+        Assertions.assertNotNull(loaded);
+        Photo loadedPhoto = loaded.getPhoto(photo.getId());
+        Assertions.assertEquals(photo.getDirectory(), loadedPhoto.getDirectory());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(family, beach)), loadedPhoto.getCurrentTags());
+        Assertions.assertEquals(db.getTagLog(photo), loaded.getTagLog(loadedPhoto));
+        Assertions.assertEquals(db.getCurrentExistingTags(), loaded.getCurrentExistingTags());
+        Assertions.assertEquals(1, loaded.getTagUsage(beach));
+    }
+
+    /**
+     * a photo that is removed after the journal is opened is not in the replayed database
+     */
+    @Test
+    void testReplayRemovedPhoto() {
+        Photo photo = addPhoto();
+        Photo other = new Photo(photoFolder + "pic2.jpg", Arrays.asList());
+        db.addPhoto(other);
+        db.removePhoto(photo);
+        journal.close();
+
+        Database loaded = ApplicationDeserializer.getDeserializer().deserialize(catalogName);
+        Assertions.assertNotNull(loaded);
+        Assertions.assertNull(loaded.getPhoto(photo.getId()));
+        Assertions.assertFalse(loaded.hasPhoto(photo.getDirectory()));
+        Assertions.assertEquals(other.getDirectory(), loaded.getPhoto(other.getId()).getDirectory());
+        Assertions.assertEquals(0, loaded.getTagUsage(beach));
+    }
+
+    /**
+     * a record that was cut short by a crash is ignored and the records before it are replayed
+     */
+    @Test
+    void testTornRecord() throws IOException {
+        Photo photo = addPhoto();
+        journal.close();
+        for (File file : getJournalFiles()) {
+            try (FileOutputStream out = new FileOutputStream(file, true)) {
+                out.write(new byte[]{0, 0, 0, 40, 1, 2});
+            }
+        }
+
+        Database loaded = ApplicationDeserializer.getDeserializer().deserialize(catalogName);
+        Assertions.assertNotNull(loaded);
+        Assertions.assertEquals(photo.getDirectory(), loaded.getPhoto(photo.getId()).getDirectory());
+    }
+
+    /**
+     * compaction writes the changes into the catalog file and deletes the journal files that are in it
+     */
+    @Test
+    void testCompact() throws Exception {
+        Photo photo = addPhoto();
+        journal.compact().get();
+        Assertions.assertEquals(1, getJournalFiles().size());
+        Assertions.assertTrue(new File(catalogName + ".catalog").exists());
+
+        dbManager.deleteTags(photo, Arrays.asList(family));
+        journal.close();
+
+        Database loaded = ApplicationDeserializer.getDeserializer().deserialize(catalogName);
+        Assertions.assertNotNull(loaded);
+        Photo loadedPhoto = loaded.getPhoto(photo.getId());
+        Assertions.assertEquals(photo.getDirectory(), loadedPhoto.getDirectory());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(beach)), loadedPhoto.getCurrentTags());
+        Assertions.assertEquals(3, loaded.getTagLog(loadedPhoto).size());
+    }
+
+    /**
+     * a snapshot is only written if something changed since the last one
+     */
+    @Test
+    void testSnapshotIfChanged() throws Exception {
+        // the journal writes the first catalog file when it is opened since there was none
+        journal.compact().get();
+        File catalog = new File(catalogName + ".catalog");
+        List<File> journalFiles = getJournalFiles();
+        journal.snapshotIfChanged().get();
+        Assertions.assertEquals(journalFiles, getJournalFiles());
+
+        Photo photo = addPhoto();
+        journal.snapshotIfChanged().get();
+        Assertions.assertNotEquals(journalFiles, getJournalFiles());
+        Assertions.assertFalse(new File(catalogName + ".catalog.tmp").exists());
+        Database loaded = ApplicationDeserializer.getDeserializer().deserialize(catalogName);
+        Assertions.assertNotNull(loaded.getPhoto(photo.getId()));
+        Assertions.assertTrue(catalog.exists());
+    }
+
+    /**
+     * a catalog file that cannot be read is renamed when the library is loaded, so the catalog file that the
+     * journal writes after the next start does not replace it
+     */
+    @Test
+    void testUnreadableCatalogIsKept() throws Exception {
+        addPhoto();
+        journal.compact().get();
+        journal.close();
+        File catalog = new File(catalogName + ".catalog");
+        byte[] bytes = Files.readAllBytes(catalog.toPath());
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(catalog.toPath(), bytes);
+
+        ApplicationDeserializer.getDeserializer().deserialize(catalogName);
+        journal.open(catalogName);
+        journal.compact().get();
+
+        List<File> kept = new ArrayList<>();
+        for (File file : folder.listFiles()) {
+            if (file.getName().startsWith("Database.catalog.corrupt-"))
+                kept.add(file);
+        }
+        Assertions.assertEquals(1, kept.size());
+        Assertions.assertArrayEquals(bytes, Files.readAllBytes(kept.get(0).toPath()));
+    }
+}
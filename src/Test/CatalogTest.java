@@ -0,0 +1,282 @@
+package Test;
+
+import Model.ApplicationDeserializer;
+import Model.ApplicationSerializer;
+import Model.Database;
+import Model.DatabaseChange;
+import Model.Photo;
+import Model.Tag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Observer;
+
+/**
+ * Test class for saving the database as a catalog file and reading it back
+ *
+ * @author Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+class CatalogTest {
+
+    /**
+     * the database and the test objects
+     */
+    private Database db;
+    private Photo p1, p2;
+    private Tag family, beach, unused;
+    private File folder;
+    private String catalogName;
+
+    /**
+     * create 2 photos: p1 has @family and @beach and used to have no tags, p2 has @family
+     */
+    @BeforeEach
+    void beforeEach() throws IOException {
+        db = Database.getDatabase();
+        family = new Tag("@family");
+        beach = new Tag("@beach");
+        unused = new Tag("@unused");
+        db.addAllCurrentExistingTags(Arrays.asList(family, beach, unused));
+
+        String photoFolder = "D:" + File.separator + "s" + File.separator;
+        p1 = new Photo(photoFolder + "pic1 @family @beach.jpg", Arrays.asList(family, beach));
+        p2 = new Photo(photoFolder + "pic2 @family.jpg", Arrays.asList(family));
+        db.addPhoto(p1);
+        db.addPhoto(p2);
+        db.addTagLog(p1, p1.getCurrentTags());
+
+        folder = Files.createTempDirectory("catalog").toFile();
+        catalogName = folder.getPath() + File.separator + "Database";
+    }
+
+    /**
+     * clean up the database and the catalog file after each test
+     */
+    @AfterEach
+    void afterEach() {
+        db.clear();
+        for (File file : folder.listFiles()) {
+            file.delete();
+        }
+        folder.delete();
+    }
+
+    /**
+     * the photos, the existing tags and the tag logs are read back the same as they were written
+     */
+    @Test
+    void testRoundTrip() {
+        ApplicationSerializer.getSerializer().serialize(db, catalogName);
+        Database loaded = ApplicationDeserializer.getDeserializer().deserialize(catalogName);
+
+        Assertions.assertNotNull(loaded);
+        Assertions.assertEquals(db.getCurrentExistingTags(), loaded.getCurrentExistingTags());
+        Assertions.assertEquals(db.getAllPhotos(), loaded.getAllPhotos());
+        Photo loadedP1 = loaded.getPhoto(p1.getId());
+        Assertions.assertEquals(p1.getDirectory(), loadedP1.getDirectory());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(family, beach)), loadedP1.getCurrentTags());
+        Assertions.assertEquals(db.getTagLog(p1), loaded.getTagLog(loadedP1));
+        Assertions.assertEquals(1, loaded.getTagUsage(beach));
+    }
+
+    /**
+     * a database that an older version saved in a .ser file is read when there is no catalog file
+     * the file was written by the Database, Photo and Tag classes of the older version
+     */
+    @Test
+    void testReadLegacyDatabase() throws IOException {
+        try (InputStream in = CatalogTest.class.getResourceAsStream("legacyDatabase.ser")) {
+            Assertions.assertNotNull(in, "legacyDatabase.ser is not on the class path");
+            Files.copy(in, new File(catalogName + ".ser").toPath());
+        }
+        Database loaded = ApplicationDeserializer.getDeserializer().deserialize(catalogName);
+
+        Assertions.assertNotNull(loaded);
+        List<String> paths = new ArrayList<>();
+        for (Photo photo : loaded.getAllPhotos()) {
+            paths.add(photo.getDirectory());
+        }
+        Assertions.assertEquals(Arrays.asList("/photos/pic1 @family.jpg", "/photos/pic2 @family @beach.jpg",
+                "/photos/pic3.jpg"), paths);
+        Tag old = new Tag("@old");
+        Assertions.assertEquals(Arrays.asList(family, beach, old), loaded.getCurrentExistingTags());
+        Photo pic2 = loaded.getPhoto("/photos/pic2 @family @beach.jpg");
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(family, beach)), pic2.getCurrentTags());
+        Assertions.assertEquals(3, loaded.getTagLog(pic2).size());
+        Assertions.assertEquals(2, loaded.getTagLog(loaded.getPhoto("/photos/pic3.jpg")).size());
+        Assertions.assertEquals(2, loaded.getTagUsage(family));
+        Assertions.assertEquals(0, loaded.getTagUsage(old));
+    }
+
+    /**
+     * a version 2 catalog, which has the file names in the string table, is read
+     */
+    @Test
+    void testReadVersion2Catalog() throws IOException {
+        try (InputStream in = CatalogTest.class.getResourceAsStream("catalogVersion2.catalog")) {
+            Assertions.assertNotNull(in, "catalogVersion2.catalog is not on the class path");
+            Files.copy(in, new File(catalogName + ".catalog").toPath());
+        }
+        Database loaded = ApplicationDeserializer.getDeserializer().deserialize(catalogName);
+
+        Assertions.assertNotNull(loaded);
+        List<String> paths = new ArrayList<>();
+        for (Photo photo : loaded.getAllPhotos()) {
+            paths.add(photo.getDirectory());
+        }
+        Assertions.assertEquals(Arrays.asList("/photos/pic1 @family.jpg", "/photos/trip/pic2 @family @beach.jpg",
+                "/photos/pic3.jpg"), paths);
+        Assertions.assertEquals(Arrays.asList(family, beach, new Tag("@old")), loaded.getCurrentExistingTags());
+        Photo pic2 = loaded.getPhoto("/photos/trip/pic2 @family @beach.jpg");
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(family, beach)), pic2.getCurrentTags());
+        Assertions.assertEquals(3, loaded.getTagLog(pic2).size());
+        Assertions.assertEquals(2, loaded.getTagUsage(family));
+    }
+
+    /**
+     * a loaded catalog is added to the empty database at once with one change event, which has the new tags
+     * and the CATALOG_LOADED change
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testLoadCatalog() {
+        ApplicationSerializer.getSerializer().serialize(db, catalogName);
+        Database loaded = ApplicationDeserializer.getDeserializer().deserialize(catalogName);
+        db.clear();
+        List<Object> events = new ArrayList<>();
+        Observer observer = (o, arg) -> events.add(arg);
+        db.addObserver(observer);
+        try {
+            db.loadCatalog(loaded);
+        } finally {
+            db.deleteObserver(observer);
+        }
+
+        Assertions.assertEquals(1, events.size());
+        List<DatabaseChange> changes = (List<DatabaseChange>) events.get(0);
+        Assertions.assertEquals(4, changes.size());
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertEquals(DatabaseChange.Type.TAG_ADDED, changes.get(i).getType());
+        }
+        Assertions.assertEquals(DatabaseChange.Type.CATALOG_LOADED, changes.get(3).getType());
+        Assertions.assertEquals(loaded.getAllPhotos(), db.getAllPhotos());
+        Assertions.assertEquals(Arrays.asList(family, beach, unused), db.getCurrentExistingTags());
+        Assertions.assertTrue(db.hasPhoto(p1.getDirectory()));
+        Assertions.assertEquals(2, db.getTagUsage(family));
+        Assertions.assertEquals(2, db.getTagLog(db.getPhoto(p1.getId())).size());
+    }
+
+    /**
+     * a loaded catalog that is added in batches sends one change event for each batch, the tags are only added
+     * with the first batch
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testLoadCatalogInBatches() {
+        ApplicationSerializer.getSerializer().serialize(db, catalogName);
+        Database loaded = ApplicationDeserializer.getDeserializer().deserialize(catalogName);
+        db.clear();
+        List<Object> events = new ArrayList<>();
+        Observer observer = (o, arg) -> events.add(arg);
+        db.addObserver(observer);
+        try {
+            db.loadCatalog(loaded, 0, 1);
+            Assertions.assertEquals(1, db.getAllPhotos().size());
+            Assertions.assertEquals(1, db.getTagUsage(family));
+            db.loadCatalog(loaded, 1, 2);
+        } finally {
+            db.deleteObserver(observer);
+        }
+
+        Assertions.assertEquals(2, events.size());
+        List<DatabaseChange> changes = (List<DatabaseChange>) events.get(1);
+        Assertions.assertEquals(1, changes.size());
+        Assertions.assertEquals(DatabaseChange.Type.CATALOG_LOADED, changes.get(0).getType());
+        Assertions.assertEquals(loaded.getAllPhotos(), db.getAllPhotos());
+        Assertions.assertEquals(2, db.getTagUsage(family));
+    }
+
+    /**
+     * a large library where every tag is on thousands of photos is saved and read back
+     */
+    @Test
+    void testConnectedLibrary() {
+        List<Tag> tags = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            tags.add(new Tag("@tag" + i));
+        }
+        db.addAllCurrentExistingTags(tags);
+        for (int i = 0; i < 20000; i++) {
+            List<Tag> photoTags = new ArrayList<>();
+            for (int j = 0; j < tags.size(); j++) {
+                if ((i >> (j % 14) & 1) == 1)
+                    photoTags.add(tags.get(j));
+            }
+            Photo photo = new Photo("D:" + File.separator + "big" + File.separator + "pic" + i + ".jpg", photoTags);
+            db.addPhoto(photo);
+            db.addTagLog(photo, photoTags);
+        }
+        ApplicationSerializer.getSerializer().serialize(db, catalogName);
+        Database loaded = ApplicationDeserializer.getDeserializer().deserialize(catalogName);
+
+        Assertions.assertNotNull(loaded);
+        Assertions.assertEquals(db.getAllPhotos().size(), loaded.getAllPhotos().size());
+        for (Tag tag : tags) {
+            Assertions.assertEquals(db.getTagUsage(tag), loaded.getTagUsage(tag));
+        }
+        Photo last = db.getAllPhotos().get(db.getAllPhotos().size() - 1);
+        Assertions.assertEquals(last.getCurrentTags(), loaded.getPhoto(last.getId()).getCurrentTags());
+        Assertions.assertEquals(db.getTagLog(last), loaded.getTagLog(loaded.getPhoto(last.getId())));
+    }
+
+    /**
+     * a catalog with a changed byte fails the checksum, it is not read and is renamed instead
+     */
+    @Test
+    void testCorrupted() throws IOException {
+        ApplicationSerializer.getSerializer().serialize(db, catalogName);
+        try (RandomAccessFile file = new RandomAccessFile(catalogName + ".catalog", "rw")) {
+            file.seek(file.length() - 1);
+            int last = file.read();
+            file.seek(file.length() - 1);
+            file.write(last ^ 1);
+        }
+        Assertions.assertNull(ApplicationDeserializer.getDeserializer().deserialize(catalogName));
+        Assertions.assertFalse(new File(catalogName + ".catalog").exists());
+        File[] kept = folder.listFiles((dir, name) -> name.startsWith("Database.catalog.corrupt-"));
+        Assertions.assertEquals(1, kept.length);
+    }
+
+    /**
+     * a catalog that is cut short is not read
+     */
+    @Test
+    void testTruncated() throws IOException {
+        ApplicationSerializer.getSerializer().serialize(db, catalogName);
+        try (RandomAccessFile file = new RandomAccessFile(catalogName + ".catalog", "rw")) {
+            file.setLength(file.length() / 2);
+        }
+        Assertions.assertNull(ApplicationDeserializer.getDeserializer().deserialize(catalogName));
+    }
+
+    /**
+     * nothing is read if there is no saved database
+     */
+    @Test
+    void testMissing() {
+        Assertions.assertNull(ApplicationDeserializer.getDeserializer().deserialize(catalogName));
+    }
+}
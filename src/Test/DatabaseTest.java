@@ -1,9 +1,11 @@
 package Test;
 
 import Model.Database;
+import Model.DatabaseChange;
 import Model.DatabaseManager;
 import Model.Photo;
 import Model.Tag;
+import Model.TagQuery;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,8 +15,10 @@ import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Observer;
 
 /**
  * Test class for Database.java
@@ -86,8 +90,7 @@ class DatabaseTest {
      */
     @AfterEach
     void afterEach() {
-        db.getAllPhotos().clear();
-        db.getCurrentExistingTags().clear();
+        db.clear();
         db = null;
         dbManager = null;
         p1 = null;
@@ -136,6 +139,17 @@ class DatabaseTest {
         Assertions.assertNull(db.getTag("@randomTag"));
     }
 
+    /**
+     * test if the database retrieves the tag object is the same as the one expected
+     * Case3 : the tag object has been deleted from the database
+     */
+    @Test
+    void testGetTagByNameCase3() {
+        db.deleteCurrentExistingTag(t1);
+        Assertions.assertNull(db.getTag(t1.getTagName()));
+        Assertions.assertFalse(db.containTag(t1));
+    }
+
     /**
      * test if the photos in the database matches the expected one.
      */
@@ -159,6 +173,21 @@ class DatabaseTest {
         Assertions.assertTrue(allPhotos.contains(p1) && allPhotos.contains(p2) && allPhotos.contains(p3));
     }
 
+    /**
+     * test if the paths of the photos in a folder are found, and not the ones of a folder with a longer name
+     */
+    @Test
+    void testGetPhotoPathsIn() {
+        String folder = "D:" + File.separator + "s" + File.separator + "t";
+        Photo other = new Photo(folder + "2" + File.separator + "pic5.jpg");
+        db.addPhoto(other);
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(p1.getDirectory(), p2.getDirectory(), p3.getDirectory(),
+                photoWithInitialTags.getDirectory())), new HashSet<>(db.getPhotoPathsIn(folder)));
+        Assertions.assertEquals(5, db.getPhotoPathsIn("D:" + File.separator + "s").size());
+        Assertions.assertTrue(db.getPhotoPathsIn(folder + File.separator + "u").isEmpty());
+        db.removePhoto(other);
+    }
+
     /**
      * test if the photo objects can correctly get all the tag that existing.
      */
@@ -173,6 +202,21 @@ class DatabaseTest {
         Assertions.assertEquals(expected, existingTags);
     }
 
+    /**
+     * test if a tag that is deleted and added back is ordered after the other tags
+     */
+    @Test
+    void testGetCurrentExistingTagsOrder() {
+        db.deleteCurrentExistingTag(t1);
+        db.addCurrentExistingTag(t1);
+        List<Tag> expected = new ArrayList<>();
+        expected.add(t2);
+        expected.add(t3);
+        expected.add(t1);
+
+        Assertions.assertEquals(expected, db.getCurrentExistingTags());
+    }
+
     /**
      * test if the acceptable photo extensions equals to the expected one.
      */
@@ -321,6 +365,64 @@ class DatabaseTest {
         Assertions.assertNull(db.getPhoto(wrongPath));
     }
 
+    /**
+     * the photo object is found by its new path after it is renamed
+     */
+    @Test
+    void testGetPhotoCase3() {
+        String newPath = "D:" + File.separator + "s" + File.separator + "t" + File.separator + "renamed.jpg";
+        p1.setDirectory(newPath);
+        Assertions.assertEquals(p1, db.getPhoto(newPath));
+        Assertions.assertFalse(db.hasPhoto(photoPath1));
+    }
+
+    /**
+     * the photo object is found by its id after it is renamed
+     */
+    @Test
+    void testGetPhotoByIdCase1() {
+        int id = p2.getId();
+        p2.setDirectory("D:" + File.separator + "s" + File.separator + "t" + File.separator + "moved.jpg");
+        Assertions.assertSame(p2, db.getPhoto(id));
+    }
+
+    /**
+     * two tag objects with the same name are equal and share the same set of photos
+     */
+    @Test
+    void testTagIdentity() {
+        Tag sameAsT2 = new Tag(t2.getTagName());
+        Assertions.assertEquals(t2.getId(), sameAsT2.getId());
+        Assertions.assertEquals(t2.hashCode(), sameAsT2.hashCode());
+        Assertions.assertTrue(p2.getCurrentTags().contains(sameAsT2));
+        Assertions.assertEquals(t2.getAllPhotos(), sameAsT2.getAllPhotos());
+    }
+
+    /**
+     * a photo that is not in the database is not counted in the photos of its tags
+     */
+    @Test
+    void testPhotoOutsideDatabase() {
+        Photo outside = new Photo("D:" + File.separator + "u" + File.separator + "pic9 @t1.jpg", Arrays.asList(t1));
+        outside.addTag(t3);
+        Assertions.assertEquals(0, t1.getPhotoCount());
+        Assertions.assertEquals(1, t3.getPhotoCount());
+        Assertions.assertTrue(TagQuery.anyOf(Arrays.asList(t1)).evaluate(db).isEmpty());
+
+        db.addPhoto(outside);
+        Assertions.assertEquals(Arrays.asList(outside), t1.getAllPhotos());
+        Assertions.assertEquals(2, t3.getPhotoCount());
+    }
+
+    /**
+     * the photo object is found by a path that is not normalized
+     */
+    @Test
+    void testGetPhotoCase4() {
+        String path = "D:" + File.separator + "s" + File.separator + "." + File.separator + "t" + File.separator + "pic1.jpg";
+        Assertions.assertEquals(p1, db.getPhoto(path));
+    }
+
     /**
      * the tag is indeed a garbage tag (no photo has this tag)
      * note: t1 is a garbage tag since no photo objects have this
@@ -353,6 +455,50 @@ class DatabaseTest {
         Assertions.assertFalse(db.isGarbageTag(t2));
     }
 
+    /**
+     * the tag becomes a garbage tag after it is deleted from every photo
+     */
+    @Test
+    void testIsGarbageTagCase4() {
+        p2.deleteTag(t2);
+        p3.deleteTag(t2);
+        photoWithInitialTags.deleteTag(t2);
+        Assertions.assertTrue(db.isGarbageTag(t2));
+    }
+
+    /**
+     * the tag usage counts every photo in the database that has the tag
+     * note: t2 is in p2, p3 and photoWithInitialTags
+     */
+    @Test
+    void testGetTagUsage() {
+        Assertions.assertEquals(3, db.getTagUsage(t2));
+        Assertions.assertEquals(1, db.getTagUsage(t3));
+        Assertions.assertEquals(0, db.getTagUsage(t1));
+    }
+
+    /**
+     * only the tags that no photo has are purged from the database, and the observers are notified once
+     */
+    @Test
+    void testPurgeUnusedTags() {
+        db.addCurrentExistingTag(new Tag("@unused"));
+        List<Object> events = new ArrayList<>();
+        Observer observer = (o, arg) -> events.add(arg);
+        db.addObserver(observer);
+        try {
+            db.purgeUnusedTags();
+        } finally {
+            db.deleteObserver(observer);
+        }
+        List<Tag> expected = new ArrayList<>();
+        expected.add(t2);
+        expected.add(t3);
+        Assertions.assertEquals(expected, db.getCurrentExistingTags());
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals(2, ((List<?>) events.get(0)).size());
+    }
+
     /**
      * the photo object does not have initial tag set
      * note: By default the photo object has a empty tag set
@@ -380,6 +526,26 @@ class DatabaseTest {
         Assertions.assertEquals(db.getTagLog(photoWithInitialTags).size(), 2);
     }
 
+    /**
+     * two photos that had the same set of tags share the same tag set object
+     */
+    @Test
+    void testAddTagLogShared() {
+        db.addTagLog(p1, expectedTagList);
+        db.addTagLog(p2, expectedTagList);
+        Assertions.assertSame(db.getTagLog(p1).get(1), db.getTagLog(p2).get(1));
+    }
+
+    /**
+     * a set of tags that is already in the tag log is not added again
+     */
+    @Test
+    void testAddTagLogDuplicate() {
+        Assertions.assertTrue(db.addTagLog(p1, expectedTagList));
+        Assertions.assertFalse(db.addTagLog(p1, new HashSet<>(expectedTagList)));
+        Assertions.assertEquals(2, db.getTagLog(p1).size());
+    }
+
     /**
      * the photo object that already has a list of tags but NOT in the database
      */
@@ -410,4 +576,97 @@ class DatabaseTest {
         Assertions.assertEquals(count, 1);
         Assertions.assertEquals(4, allPhotos.size());
     }
+
+    /**
+     * tag changes on many photos in one batch notify the observers once and log the tags of every photo
+     */
+    @Test
+    void testBatch() {
+        int[] events = new int[2];
+        Observer dbObserver = (o, arg) -> events[0]++;
+        Observer managerObserver = (o, arg) -> events[1]++;
+        db.addObserver(dbObserver);
+        dbManager.addObserver(managerObserver);
+        Tag t4 = new Tag("@t4");
+        List<Tag> newTags = new ArrayList<>();
+        newTags.add(t4);
+        try {
+            dbManager.beginBatch();
+            try {
+                dbManager.addTags(p1, newTags);
+                dbManager.addTags(p2, newTags);
+                dbManager.deleteTags(p3, expectedTagList);
+            } finally {
+                dbManager.commitBatch();
+            }
+        } finally {
+            db.deleteObserver(dbObserver);
+            dbManager.deleteObserver(managerObserver);
+        }
+        Assertions.assertEquals(0, events[0]);
+        Assertions.assertEquals(1, events[1]);
+        Assertions.assertTrue(db.containTag(t4));
+        Assertions.assertEquals(2, db.getTagUsage(t4));
+        Assertions.assertTrue(db.getTagLog(p1).contains(new HashSet<>(newTags)));
+        Assertions.assertTrue(db.getTagLog(p3).contains(new HashSet<>()));
+    }
+
+    /**
+     * a batch sends the list of changes with one rename for a photo that is renamed for every added tag
+     */
+    @Test
+    void testBatchChanges() {
+        List<Object> events = new ArrayList<>();
+        Observer managerObserver = (o, arg) -> events.add(arg);
+        dbManager.addObserver(managerObserver);
+        Tag t4 = new Tag("@t4");
+        List<Tag> newTags = new ArrayList<>();
+        newTags.add(t1);
+        newTags.add(t4);
+        try {
+            dbManager.addTags(p1, newTags);
+        } finally {
+            dbManager.deleteObserver(managerObserver);
+        }
+        Assertions.assertEquals(1, events.size());
+        List<DatabaseChange.Type> types = new ArrayList<>();
+        for (Object change : (List) events.get(0)) {
+            types.add(((DatabaseChange) change).getType());
+        }
+        Assertions.assertEquals(1, types.stream().filter(type -> type == DatabaseChange.Type.PHOTO_RENAMED).count());
+        Assertions.assertTrue(types.contains(DatabaseChange.Type.TAG_ADDED));
+        Assertions.assertTrue(types.contains(DatabaseChange.Type.TAG_SET_LOGGED));
+        DatabaseChange rename = (DatabaseChange) ((List) events.get(0)).get(types.indexOf(DatabaseChange.Type.PHOTO_RENAMED));
+        Assertions.assertEquals(photoPath1, rename.getOldPath());
+        Assertions.assertEquals(p1, rename.getPhoto());
+    }
+
+    /**
+     * a change outside a batch is sent to the observers of the database right away
+     */
+    @Test
+    void testChangeOutsideBatch() {
+        List<Object> events = new ArrayList<>();
+        Observer dbObserver = (o, arg) -> events.add(arg);
+        db.addObserver(dbObserver);
+        Tag t4 = new Tag("@t4");
+        try {
+            db.addCurrentExistingTag(t4);
+            db.deleteCurrentExistingTag(t4);
+        } finally {
+            db.deleteObserver(dbObserver);
+        }
+        Assertions.assertEquals(2, events.size());
+        Assertions.assertEquals(DatabaseChange.Type.TAG_ADDED, ((DatabaseChange) events.get(0)).getType());
+        Assertions.assertEquals(DatabaseChange.Type.TAG_REMOVED, ((DatabaseChange) events.get(1)).getType());
+        Assertions.assertSame(t4, ((DatabaseChange) events.get(1)).getTag());
+    }
+
+    /**
+     * committing without an open batch is an error
+     */
+    @Test
+    void testBatchNotOpen() {
+        Assertions.assertThrows(IllegalStateException.class, () -> dbManager.commitBatch());
+    }
 }
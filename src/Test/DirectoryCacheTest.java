@@ -0,0 +1,186 @@
+package Test;
+
+import Model.Database;
+import Model.DirectoryCache;
+import Model.DirectoryScanner;
+import Model.Photo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Test class for scanning folders again with the fingerprints of the last scan
+ *
+ * @author Jianzhong You, Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+class DirectoryCacheTest {
+
+    /**
+     * a modified time long before the test
+     */
+    private static final FileTime OLD_TIME = FileTime.fromMillis(System.currentTimeMillis() - 3600_000);
+
+    /**
+     * the scanner, the cache and the test folders
+     */
+    private DirectoryScanner scanner;
+    private DirectoryCache cache;
+    private File cacheFile;
+    private Path root, sub, deep;
+
+    /**
+     * create a folder with a sub folder with 2 images and a folder under it with 1 image, and open the cache
+     */
+    @BeforeEach
+    void beforeEach() throws IOException {
+        scanner = DirectoryScanner.getDirectoryScanner();
+        cache = DirectoryCache.getDirectoryCache();
+        root = Files.createTempDirectory("cache");
+        sub = Files.createDirectory(root.resolve("sub"));
+        deep = Files.createDirectory(sub.resolve("deep"));
+        Files.createFile(sub.resolve("b @family.PNG"));
+        Files.createFile(sub.resolve("c.gif"));
+        Files.createFile(deep.resolve("d.jpeg"));
+        cacheFile = Files.createTempFile("directoryCache", ".bin").toFile();
+        cacheFile.delete();
+        cache.open(cacheFile);
+    }
+
+    /**
+     * close the cache and delete the test folders after each test
+     */
+    @AfterEach
+    void afterEach() throws IOException {
+        Database.getDatabase().clear();
+        cache.close();
+        cacheFile.delete();
+        List<Path> paths = Files.walk(root).sorted(Collections.reverseOrder()).collect(Collectors.toList());
+        for (Path path : paths) {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * get the file names of the image files that the scanner finds in the sub folder
+     *
+     * @return the file names
+     */
+    private List<String> scanNames() {
+        return scanner.scan(Arrays.asList(sub), true).map(path -> path.getFileName().toString())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * a folder whose modified time did not change is not listed again, also after the cache is saved and read
+     */
+    @Test
+    void testUnchangedFolder() throws IOException {
+        Files.setLastModifiedTime(sub, OLD_TIME);
+        Files.setLastModifiedTime(deep, OLD_TIME);
+        Assertions.assertEquals(Arrays.asList("b @family.PNG", "c.gif", "d.jpeg"), scanNames());
+
+        // a file that is added without changing the fingerprint is not seen
+        Files.createFile(sub.resolve("e.jpg"));
+        Files.setLastModifiedTime(sub, OLD_TIME);
+        Assertions.assertEquals(Arrays.asList("b @family.PNG", "c.gif", "d.jpeg"), scanNames());
+        cache.close();
+        cache.open(cacheFile);
+        Assertions.assertEquals(Arrays.asList("b @family.PNG", "c.gif", "d.jpeg"), scanNames());
+
+        Files.setLastModifiedTime(sub, FileTime.fromMillis(OLD_TIME.toMillis() + 1000));
+        Assertions.assertEquals(Arrays.asList("b @family.PNG", "c.gif", "e.jpg", "d.jpeg"), scanNames());
+    }
+
+    /**
+     * a folder that changed is listed again and a deleted sub folder is not scanned
+     */
+    @Test
+    void testChangedFolder() throws IOException {
+        Files.setLastModifiedTime(sub, OLD_TIME);
+        Files.setLastModifiedTime(deep, OLD_TIME);
+        Assertions.assertEquals(Arrays.asList("b @family.PNG", "c.gif", "d.jpeg"), scanNames());
+
+        Files.delete(deep.resolve("d.jpeg"));
+        Files.delete(deep);
+        Files.delete(sub.resolve("c.gif"));
+        Files.createFile(sub.resolve("f.bmp"));
+        Assertions.assertEquals(Arrays.asList("b @family.PNG", "f.bmp"), scanNames());
+    }
+
+    /**
+     * a folder that changed just before it was listed is listed again, since a change in the same tick of the
+     * clock does not change its modified time
+     */
+    @Test
+    void testRacyFolder() throws IOException {
+        FileTime modified = Files.getLastModifiedTime(sub);
+        Assertions.assertEquals(Arrays.asList("b @family.PNG", "c.gif", "d.jpeg"), scanNames());
+
+        Files.createFile(sub.resolve("e.jpg"));
+        Files.setLastModifiedTime(sub, modified);
+        Assertions.assertEquals(Arrays.asList("b @family.PNG", "c.gif", "e.jpg", "d.jpeg"), scanNames());
+    }
+
+    /**
+     * a cache file that is corrupted is not used
+     */
+    @Test
+    void testCorruptedFile() throws IOException {
+        Files.setLastModifiedTime(sub, OLD_TIME);
+        scanNames();
+        cache.save();
+        byte[] bytes = Files.readAllBytes(cacheFile.toPath());
+        bytes[bytes.length - 6] ^= 1;
+        Files.write(cacheFile.toPath(), bytes);
+        Assertions.assertThrows(IOException.class, () -> cache.open(cacheFile));
+
+        Files.createFile(sub.resolve("e.jpg"));
+        Files.setLastModifiedTime(sub, OLD_TIME);
+        Assertions.assertEquals(Arrays.asList("b @family.PNG", "c.gif", "e.jpg", "d.jpeg"), scanNames());
+    }
+
+    /**
+     * an image file of an unchanged folder is only passed on if its photo is not in the database
+     */
+    @Test
+    void testUnchangedFolderReportsNewPhotos() throws IOException {
+        Files.setLastModifiedTime(sub, OLD_TIME);
+        Files.setLastModifiedTime(deep, OLD_TIME);
+        Assertions.assertEquals(3, scanFound().size());
+
+        Database.getDatabase().addPhoto(new Photo(sub.resolve("c.gif").toString()));
+        Database.getDatabase().addPhoto(new Photo(deep.resolve("d.jpeg").toString()));
+        Assertions.assertEquals(Collections.singleton("b @family.PNG"), scanFound());
+
+        // a changed folder passes on every image file
+        Files.setLastModifiedTime(sub, FileTime.fromMillis(OLD_TIME.toMillis() + 1000));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("b @family.PNG", "c.gif")), scanFound());
+    }
+
+    /**
+     * get the file names of the image files that the scanner passes on in the sub folder
+     *
+     * @return the file names
+     */
+    private Set<String> scanFound() {
+        Set<String> names = ConcurrentHashMap.newKeySet();
+        scanner.scan(Arrays.asList(sub), true, () -> false, path -> names.add(path.getFileName().toString()));
+        return names;
+    }
+}
@@ -0,0 +1,132 @@
+package Test;
+
+import Model.DirectoryScanner;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Test class for finding the image files in folders
+ *
+ * @author Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+class DirectoryScannerTest {
+
+    /**
+     * the scanner and the test folders
+     */
+    private DirectoryScanner scanner;
+    private Path root, sub, deep;
+
+    /**
+     * create a folder with an image and a text file, a sub folder with 2 images and a folder under it with 1 image
+     */
+    @BeforeEach
+    void beforeEach() throws IOException {
+        scanner = DirectoryScanner.getDirectoryScanner();
+        root = Files.createTempDirectory("scan");
+        sub = Files.createDirectory(root.resolve("sub"));
+        deep = Files.createDirectory(sub.resolve("deep"));
+        Files.createFile(root.resolve("a.jpg"));
+        Files.createFile(root.resolve("notes.txt"));
+        Files.createFile(sub.resolve("b @family.PNG"));
+        Files.createFile(sub.resolve("c.gif"));
+        Files.createFile(deep.resolve("d.jpeg"));
+    }
+
+    /**
+     * delete the test folders after each test
+     */
+    @AfterEach
+    void afterEach() throws IOException {
+        List<Path> paths = Files.walk(root).sorted(Collections.reverseOrder()).collect(Collectors.toList());
+        for (Path path : paths) {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * get the file names of the image files that the scanner finds
+     *
+     * @param paths     the files and folders to scan
+     * @param recursive if the folders are searched
+     * @return the file names
+     */
+    private List<String> scanNames(List<Path> paths, boolean recursive) {
+        return scanner.scan(paths, recursive).map(path -> path.getFileName().toString())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * every image file in every folder is found in order and the other files are not
+     */
+    @Test
+    void testRecursive() {
+        Assertions.assertEquals(Arrays.asList("b @family.PNG", "c.gif", "d.jpeg"),
+                scanNames(Arrays.asList(sub), true));
+        Assertions.assertEquals(Arrays.asList("a.jpg", "b @family.PNG", "c.gif", "d.jpeg"),
+                scanNames(Arrays.asList(root.resolve("a.jpg"), root.resolve("notes.txt"), sub), true));
+    }
+
+    /**
+     * only the image files in the list are found if the folders are not searched
+     */
+    @Test
+    void testNotRecursive() {
+        Assertions.assertEquals(Arrays.asList("a.jpg"),
+                scanNames(Arrays.asList(root.resolve("a.jpg"), root.resolve("notes.txt"), sub), false));
+    }
+
+    /**
+     * a folder that is given twice or reached again through a link is only read once
+     */
+    @Test
+    void testDuplicates() throws IOException {
+        try {
+            Files.createSymbolicLink(deep.resolve("loop"), sub);
+        } catch (UnsupportedOperationException | IOException e) {
+            // the file system has no links, the duplicated folder is still checked
+        }
+        Assertions.assertEquals(Arrays.asList("b @family.PNG", "c.gif", "d.jpeg"),
+                scanNames(Arrays.asList(sub, sub, new File(sub.toString()).toPath()), true));
+    }
+
+    /**
+     * every image file is passed on once as its folder is read, also when a folder and a file in it are both given
+     */
+    @Test
+    void testFoundCallback() {
+        Set<String> found = ConcurrentHashMap.newKeySet();
+        AtomicInteger calls = new AtomicInteger();
+        scanner.scan(Arrays.asList(sub, sub.resolve("c.gif"), root.resolve("missing")), true, () -> false, path -> {
+            found.add(path.getFileName().toString());
+            calls.incrementAndGet();
+        });
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("b @family.PNG", "c.gif", "d.jpeg")), found);
+        Assertions.assertEquals(3, calls.get());
+    }
+
+    /**
+     * a folder that does not exist is skipped
+     */
+    @Test
+    void testMissing() {
+        Assertions.assertTrue(scanNames(Arrays.asList(root.resolve("missing")), true).isEmpty());
+    }
+}
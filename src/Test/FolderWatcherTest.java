@@ -0,0 +1,179 @@
+package Test;
+
+import Model.Database;
+import Model.FolderWatcher;
+import Model.Photo;
+import Model.Tag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Test class for syncing the database with the watched folders
+ *
+ * @author Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+class FolderWatcherTest {
+
+    /**
+     * the database, the watcher and the watched folder
+     */
+    private Database db;
+    private FolderWatcher watcher;
+    private Path folder;
+    private File rootsFile;
+    /**
+     * the changes that the watcher sends to the database thread, they are applied by the test
+     */
+    private BlockingQueue<Runnable> changes;
+
+    /**
+     * watch a new folder, the changes are applied on the thread of the test
+     */
+    @BeforeEach
+    void beforeEach() throws IOException {
+        db = Database.getDatabase();
+        watcher = FolderWatcher.getFolderWatcher();
+        folder = Files.createTempDirectory("watched").toRealPath();
+        rootsFile = Files.createTempFile("watchedFolders", ".txt").toFile();
+        rootsFile.delete();
+        changes = new LinkedBlockingQueue<>();
+        watcher.setDatabaseThread(changes::add);
+        watcher.open(rootsFile);
+        watcher.watch(folder);
+    }
+
+    /**
+     * close the watcher, clean up the database and the files after each test
+     */
+    @AfterEach
+    void afterEach() throws IOException {
+        watcher.close();
+        db.clear();
+        try (Stream<Path> paths = Files.walk(folder)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+        rootsFile.delete();
+    }
+
+    /**
+     * wait for the next changes of the watched folder and apply them
+     */
+    private void applyChanges() throws InterruptedException {
+        Runnable change = changes.poll(20, TimeUnit.SECONDS);
+        Assertions.assertNotNull(change, "no change of the watched folder");
+        change.run();
+    }
+
+    /**
+     * a new image file becomes a photo with the tags in its name, other files are ignored
+     */
+    @Test
+    void testFileAdded() throws Exception {
+        Path image = Files.createFile(folder.resolve("pic1 @family.jpg"));
+        Files.createFile(folder.resolve("notes.txt"));
+        applyChanges();
+
+        Photo photo = db.getPhoto(image.toString());
+        Assertions.assertNotNull(photo);
+        Assertions.assertEquals(Collections.singleton(db.getTag("@family")), photo.getCurrentTags());
+        Assertions.assertEquals(1, db.getAllPhotos().size());
+    }
+
+    /**
+     * the image files in a new sub folder are added
+     */
+    @Test
+    void testFolderAdded() throws Exception {
+        Path subFolder = Files.createTempDirectory("new");
+        Files.createFile(subFolder.resolve("pic1.jpg"));
+        Files.createFile(subFolder.resolve("pic2.png"));
+        Path moved = Files.move(subFolder, folder.resolve("new"));
+        applyChanges();
+
+        Assertions.assertTrue(db.hasPhoto(moved.resolve("pic1.jpg").toString()));
+        Assertions.assertTrue(db.hasPhoto(moved.resolve("pic2.png").toString()));
+    }
+
+    /**
+     * a photo whose file is deleted is removed and its unused tag is deleted
+     */
+    @Test
+    void testFileDeleted() throws Exception {
+        Path image = Files.createFile(folder.resolve("pic1 @family.jpg"));
+        applyChanges();
+        Files.delete(image);
+        applyChanges();
+
+        Assertions.assertFalse(db.hasPhoto(image.toString()));
+        Assertions.assertTrue(db.getAllPhotos().isEmpty());
+        Assertions.assertFalse(db.containTag("@family"));
+    }
+
+    /**
+     * the photos in a deleted sub folder are removed
+     */
+    @Test
+    void testFolderDeleted() throws Exception {
+        Path subFolder = Files.createDirectory(folder.resolve("sub"));
+        Path image = Files.createFile(subFolder.resolve("pic1.jpg"));
+        applyChanges();
+        Assertions.assertTrue(db.hasPhoto(image.toString()));
+        Files.delete(image);
+        Files.delete(subFolder);
+        applyChanges();
+
+        Assertions.assertTrue(db.getAllPhotos().isEmpty());
+    }
+
+    /**
+     * a photo whose file is renamed keeps its id and its tag log, and gets the tags of the new name
+     */
+    @Test
+    void testFileRenamed() throws Exception {
+        Path image = Files.createFile(folder.resolve("pic1 @family.jpg"));
+        applyChanges();
+        Photo photo = db.getPhoto(image.toString());
+        Path renamed = Files.move(image, folder.resolve("pic1 @beach @sea.jpg"));
+        applyChanges();
+
+        Assertions.assertSame(photo, db.getPhoto(renamed.toString()));
+        Assertions.assertEquals(1, db.getAllPhotos().size());
+        Assertions.assertEquals(renamed.toString(), photo.getDirectory());
+        Tag beach = db.getTag("@beach");
+        Tag sea = db.getTag("@sea");
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(beach, sea)), photo.getCurrentTags());
+        Assertions.assertTrue(db.getTagLog(photo).contains(photo.getCurrentTags()));
+        Assertions.assertFalse(db.containTag("@family"));
+    }
+
+    /**
+     * the watched roots are saved and watched again when the watcher is opened again
+     */
+    @Test
+    void testRootsSaved() throws Exception {
+        watcher.close();
+        watcher.open(rootsFile);
+        Assertions.assertEquals(Collections.singletonList(folder), watcher.getRoots());
+
+        Path image = Files.createFile(folder.resolve("pic1.jpg"));
+        applyChanges();
+        Assertions.assertTrue(db.hasPhoto(image.toString()));
+    }
+}
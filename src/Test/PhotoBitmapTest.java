@@ -0,0 +1,117 @@
+package Test;
+
+import Model.PhotoBitmap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for PhotoBitmap.java
+ *
+ * @author Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+class PhotoBitmapTest {
+
+    /**
+     * bitmaps for testing
+     */
+    private PhotoBitmap sparse, dense;
+
+    /**
+     * before each test, create a sparse bitmap with 3 ids and a dense bitmap with 10000 ids
+     */
+    @BeforeEach
+    void beforeEach() {
+        sparse = new PhotoBitmap();
+        sparse.add(1);
+        sparse.add(5000);
+        sparse.add(70000);
+        dense = new PhotoBitmap();
+        for (int id = 0; id < 10000; id++) {
+            dense.add(id);
+        }
+    }
+
+    /**
+     * Test adding an id that is already in the bitmap (case repeated add)
+     */
+    @Test
+    void testAddCase1() {
+        assertFalse(sparse.add(5000));
+        assertEquals(3, sparse.cardinality());
+    }
+
+    /**
+     * Test adding a new id in a new chunk
+     */
+    @Test
+    void testAddCase2() {
+        assertTrue(sparse.add(200000));
+        assertTrue(sparse.contains(200000));
+        assertEquals(4, sparse.cardinality());
+    }
+
+    /**
+     * Test removing ids until a dense chunk becomes sparse
+     */
+    @Test
+    void testRemove() {
+        for (int id = 0; id < 9000; id++) {
+            assertTrue(dense.remove(id));
+        }
+        assertFalse(dense.remove(0));
+        assertEquals(1000, dense.cardinality());
+        assertEquals(9000, dense.select(0));
+    }
+
+    /**
+     * Test the rank of ids in sparse and dense chunks is the inverse of select
+     */
+    @Test
+    void testRank() {
+        assertEquals(0, sparse.rank(1));
+        assertEquals(2, sparse.rank(70000));
+        assertEquals(2, sparse.rank(6000));
+        assertEquals(3, sparse.rank(200000));
+        assertEquals(6400, dense.rank(dense.select(6400)));
+        assertEquals(10000, dense.rank(65535));
+    }
+
+    /**
+     * Test the ids are returned in ascending order
+     */
+    @Test
+    void testToArray() {
+        assertArrayEquals(new int[]{1, 5000, 70000}, sparse.toArray());
+    }
+
+    /**
+     * Test the intersection of a sparse and a dense bitmap
+     */
+    @Test
+    void testAnd() {
+        assertArrayEquals(new int[]{1, 5000}, PhotoBitmap.and(sparse, dense).toArray());
+    }
+
+    /**
+     * Test the union of a sparse and a dense bitmap
+     */
+    @Test
+    void testOr() {
+        PhotoBitmap result = PhotoBitmap.or(sparse, dense);
+        assertEquals(10001, result.cardinality());
+        assertTrue(result.contains(70000));
+    }
+
+    /**
+     * Test the difference of a sparse and a dense bitmap
+     */
+    @Test
+    void testAndNot() {
+        assertArrayEquals(new int[]{70000}, PhotoBitmap.andNot(sparse, dense).toArray());
+        assertEquals(9998, PhotoBitmap.andNot(dense, sparse).cardinality());
+    }
+}
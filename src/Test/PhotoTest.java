@@ -5,11 +5,19 @@ import Model.Tag;
 import org.junit.jupiter.api.*;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 /**
  * Test class for Photo.java
@@ -57,7 +65,7 @@ class PhotoTest {
         expectedResult.add(new Tag("@1"));
         expectedResult.add(new Tag("@2"));
         expectedResult.add(new Tag("@3"));
-        HashSet<Tag> actualResult = p1.getCurrentTags();
+        Set<Tag> actualResult = p1.getCurrentTags();
         Boolean x = true;
         for (Tag tag : actualResult) {
             if (!expectedResult.contains(tag)) {
@@ -67,6 +75,22 @@ class PhotoTest {
         assertEquals(true, x);
     }
 
+    /**
+     * Test that two photos with the same tags share the same tag set, in any order of the tags
+     */
+    @Test
+    void testGetCurrentTagsShared() {
+        List<Tag> tagSet = new ArrayList<>();
+        tagSet.add(tag3);
+        tagSet.add(tag1);
+        tagSet.add(tag2);
+        Photo photo3 = new Photo("D:" + File.separator + "s" + File.separator + "t" + File.separator + "pic3.jpg", tagSet);
+        assertSame(p2.getCurrentTags(), photo3.getCurrentTags());
+        assertEquals(true, photo3.getCurrentTags().contains(tag1));
+        assertEquals(false, p1.getCurrentTags().contains(tag1));
+        assertEquals(0, p1.getCurrentTags().size());
+    }
+
 
     /**
      * Test if the method returns only the folder directory
@@ -178,12 +202,46 @@ class PhotoTest {
 
 
     /**
-     * Test a new Photo Object with the same directory
+     * Test changing many tags at once
+     * The file name is the same as after deleting and adding the tags one by one
+     */
+    @Test
+    void testChangeTags() {
+        Tag tag4 = new Tag("@4");
+        p2.changeTags(Arrays.asList(tag4, tag1), Arrays.asList(tag1, tag2));
+        String expectedResult = "D:" + File.separator + "s" + File.separator + "t" + File.separator + "pic1 @3 @4 @1.jpg";
+        assertEquals(expectedResult, p2.getDirectory());
+        assertEquals(new HashSet<>(Arrays.asList(tag1, tag3, tag4)), p2.getCurrentTags());
+    }
+
+    /**
+     * Test that the photo file is renamed once to its final name when many tags are added
+     */
+    @Test
+    void testChangeTagsRenamesFile() throws IOException {
+        Path folder = Files.createTempDirectory("photo");
+        Path file = Files.createFile(folder.resolve("pic1 @1.jpg"));
+        Photo photo = new Photo(file.toString(), Arrays.asList(tag1));
+        photo.changeTags(Arrays.asList(tag2, tag3), Arrays.asList(tag1));
+
+        Path renamed = folder.resolve("pic1 @2 @3.jpg");
+        assertEquals(renamed.toString(), photo.getDirectory());
+        try (Stream<Path> files = Files.list(folder)) {
+            assertEquals(Arrays.asList(renamed), files.collect(Collectors.toList()));
+        }
+        Files.delete(renamed);
+        Files.delete(folder);
+    }
+
+    /**
+     * Test the same Photo Object after it is renamed
      */
     @Test
     void testEqualsCase1() {
-        Photo photo2 = new Photo("D:" + File.separator + "s" + File.separator + "t" + File.separator + "pic1.jpg");
-        assertEquals(true, p1.equals(photo2));
+        int hashCode = p1.hashCode();
+        p1.setDirectory("D:" + File.separator + "s" + File.separator + "t" + File.separator + "pic2.jpg");
+        assertEquals(true, p1.equals(p1));
+        assertEquals(hashCode, p1.hashCode());
     }
 
 
@@ -196,6 +254,15 @@ class PhotoTest {
         assertEquals(false, p1.equals(photo3));
     }
 
+    /**
+     * Test a new Photo Object with the same directory, it is a different photo since it has a different id
+     */
+    @Test
+    void testEqualsCase4() {
+        Photo photo2 = new Photo("D:" + File.separator + "s" + File.separator + "t" + File.separator + "pic1.jpg");
+        assertEquals(false, p1.equals(photo2));
+    }
+
     /**
      * Test a non-Photo Object
      */
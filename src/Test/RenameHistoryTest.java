@@ -0,0 +1,171 @@
+package Test;
+
+import Model.DataLogger;
+import Model.Database;
+import Model.DatabaseManager;
+import Model.Photo;
+import Model.RenameHistory;
+import Model.RenameRecord;
+import Model.Tag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class for looking up the renames of a photo in the rename history
+ *
+ * @author Shiyi Tao, Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+class RenameHistoryTest {
+
+    /**
+     * the database, the rename history and the test objects
+     */
+    private Database db;
+    private DatabaseManager dbManager;
+    private RenameHistory history;
+    private Photo p1, p2;
+    private Tag family, beach;
+    private File folder;
+
+    /**
+     * open the rename history in a new folder and add 2 photos
+     */
+    @BeforeEach
+    void beforeEach() throws IOException {
+        db = Database.getDatabase();
+        dbManager = DatabaseManager.getDbManager();
+        history = RenameHistory.getRenameHistory();
+        family = new Tag("@family");
+        beach = new Tag("@beach");
+        folder = Files.createTempDirectory("renames").toFile();
+        history.open(folder);
+        dbManager.addObserver(DataLogger.getDataLogger());
+
+        String photoFolder = "D:" + File.separator + "s" + File.separator;
+        p1 = new Photo(photoFolder + "pic1.jpg", Arrays.asList());
+        p2 = new Photo(photoFolder + "pic2.jpg", Arrays.asList());
+        db.addPhoto(p1);
+        db.addPhoto(p2);
+    }
+
+    /**
+     * close the rename history, clean up the database and the files after each test
+     */
+    @AfterEach
+    void afterEach() {
+        dbManager.deleteObserver(DataLogger.getDataLogger());
+        history.close();
+        db.clear();
+        for (File file : folder.listFiles()) {
+            file.delete();
+        }
+        folder.delete();
+    }
+
+    /**
+     * add and delete @family and @beach on the photo, which renames it 4 times
+     *
+     * @param photo the photo
+     */
+    private void renameFourTimes(Photo photo) {
+        dbManager.addTags(photo, Arrays.asList(family));
+        dbManager.addTags(photo, Arrays.asList(beach));
+        dbManager.deleteTags(photo, Arrays.asList(family));
+        dbManager.deleteTags(photo, Arrays.asList(beach));
+        DataLogger.getDataLogger().flush();
+    }
+
+    /**
+     * the renames of a photo are returned newest first and the renames of other photos are left out
+     */
+    @Test
+    void testHistory() {
+        dbManager.addTags(p2, Arrays.asList(family));
+        renameFourTimes(p1);
+
+        List<RenameRecord> renames = history.getHistory(p1.getId(), 0, 10);
+        Assertions.assertEquals(4, renames.size());
+        Assertions.assertEquals("pic1 @beach.jpg", renames.get(0).getPreviousName());
+        Assertions.assertEquals("pic1.jpg", renames.get(0).getNewName());
+        Assertions.assertEquals("pic1.jpg", renames.get(3).getPreviousName());
+        Assertions.assertEquals("pic1 @family.jpg", renames.get(3).getNewName());
+        for (RenameRecord rename : renames) {
+            Assertions.assertEquals(p1.getId(), rename.getPhotoId());
+        }
+    }
+
+    /**
+     * a page of the history goes on in the older segments after the history is rotated and opened again
+     */
+    @Test
+    void testPagesAcrossSegments() throws IOException {
+        renameFourTimes(p1);
+        history.rotate();
+        renameFourTimes(p1);
+        history.close();
+        history.open(folder);
+
+        List<RenameRecord> newest = history.getHistory(p1.getId(), 0, 3);
+        List<RenameRecord> older = history.getHistory(p1.getId(), 3, 3);
+        List<RenameRecord> oldest = history.getHistory(p1.getId(), 6, 3);
+        Assertions.assertEquals(3, newest.size());
+        Assertions.assertEquals(3, older.size());
+        Assertions.assertEquals(2, oldest.size());
+        Assertions.assertEquals("pic1 @beach.jpg", newest.get(0).getPreviousName());
+        Assertions.assertEquals("pic1.jpg", oldest.get(1).getPreviousName());
+        Assertions.assertTrue(history.getHistory(p2.getId(), 0, 3).isEmpty());
+    }
+
+    /**
+     * the renames of a photo are looked up in a time range, in the closed and in the newest segment
+     */
+    @Test
+    void testTimeRange() throws Exception {
+        renameFourTimes(p1);
+        history.rotate();
+        Thread.sleep(20);
+        long middle = System.currentTimeMillis();
+        Thread.sleep(20);
+        renameFourTimes(p1);
+        history.close();
+        history.open(folder);
+
+        List<RenameRecord> older = history.getHistory(p1.getId(), Long.MIN_VALUE, middle, 0, 10);
+        List<RenameRecord> newer = history.getHistory(p1.getId(), middle, Long.MAX_VALUE, 0, 10);
+        Assertions.assertEquals(4, older.size());
+        Assertions.assertEquals(4, newer.size());
+        for (RenameRecord rename : older) {
+            Assertions.assertTrue(rename.getTime() < middle);
+        }
+        for (RenameRecord rename : newer) {
+            Assertions.assertTrue(rename.getTime() >= middle);
+        }
+        Assertions.assertEquals(2, history.getHistory(p1.getId(), middle, Long.MAX_VALUE, 2, 10).size());
+        Assertions.assertTrue(history.getHistory(p1.getId(), middle, middle + 1, 0, 10).isEmpty());
+    }
+
+    /**
+     * the renames are in the history once the flush that was asked for without waiting is done
+     */
+    @Test
+    void testFlushAsync() throws Exception {
+        dbManager.addTags(p1, Arrays.asList(family));
+        dbManager.addTags(p2, Arrays.asList(beach));
+        DataLogger.getDataLogger().flushAsync().get(10, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(1, history.getHistory(p1.getId(), 0, 10).size());
+        Assertions.assertEquals(1, history.getHistory(p2.getId(), 0, 10).size());
+        Assertions.assertNull(DataLogger.getDataLogger().flushAsync().get(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,125 @@
+package Test;
+
+import Model.Database;
+import Model.Photo;
+import Model.Tag;
+import Model.TagQuery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test class for TagQuery.java
+ *
+ * @author Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+class TagQueryTest {
+
+    /**
+     * the database and the test objects
+     */
+    private Database db;
+    private Photo p1, p2, p3;
+    private Tag family, beach, dog;
+
+    /**
+     * create 3 photos: p1 has @family and @beach, p2 has @family, p3 has @dog
+     */
+    @BeforeEach
+    void beforeEach() {
+        db = Database.getDatabase();
+        family = new Tag("@family");
+        beach = new Tag("@beach");
+        dog = new Tag("@dog");
+        db.addAllCurrentExistingTags(Arrays.asList(family, beach, dog));
+
+        String folder = "D:" + File.separator + "s" + File.separator;
+        p1 = new Photo(folder + "pic1 @family @beach.jpg", Arrays.asList(family, beach));
+        p2 = new Photo(folder + "pic2 @family.jpg", Arrays.asList(family));
+        p3 = new Photo(folder + "pic3 @dog.jpg", Arrays.asList(dog));
+        db.addPhoto(p1);
+        db.addPhoto(p2);
+        db.addPhoto(p3);
+    }
+
+    /**
+     * clean up the database after each test
+     */
+    @AfterEach
+    void afterEach() {
+        db.clear();
+    }
+
+    /**
+     * evaluate the query expression and return the matched photos
+     *
+     * @param expression the query expression
+     * @return the matched photos
+     */
+    private List<Photo> query(String expression) {
+        return TagQuery.parse(expression).evaluate(db).getAll();
+    }
+
+    /**
+     * Test a query with one tag, with and without the "@" symbol
+     */
+    @Test
+    void testTag() {
+        Assertions.assertEquals(Arrays.asList(p1, p2), query("@family"));
+        Assertions.assertEquals(Arrays.asList(p1, p2), query("family"));
+    }
+
+    /**
+     * Test AND, OR and NOT
+     */
+    @Test
+    void testOperators() {
+        Assertions.assertEquals(Arrays.asList(p1), query("family AND beach"));
+        Assertions.assertEquals(Arrays.asList(p1, p3), query("beach OR dog"));
+        Assertions.assertEquals(Arrays.asList(p2, p3), query("NOT beach"));
+        Assertions.assertEquals(Arrays.asList(p2), query("family & !beach"));
+    }
+
+    /**
+     * Test that AND binds tighter than OR and that parentheses group the operands
+     */
+    @Test
+    void testGrouping() {
+        Assertions.assertEquals(Arrays.asList(p1, p3), query("family beach OR dog"));
+        Assertions.assertEquals(Arrays.asList(p1), query("family (beach OR dog)"));
+    }
+
+    /**
+     * Test a tag that no photo has
+     */
+    @Test
+    void testUnknownTag() {
+        Assertions.assertTrue(TagQuery.parse("@unknown").evaluate(db).isEmpty());
+    }
+
+    /**
+     * Test the photos are looked up one page at a time
+     */
+    @Test
+    void testPage() {
+        List<Tag> tags = new ArrayList<>(Arrays.asList(family, dog));
+        Assertions.assertEquals(Arrays.asList(p2, p3), TagQuery.anyOf(tags).evaluate(db).getPage(1, 5));
+    }
+
+    /**
+     * Test an invalid query expression
+     */
+    @Test
+    void testInvalidQuery() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TagQuery.parse("(family OR"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TagQuery.parse("family )"));
+    }
+}
@@ -2,12 +2,12 @@ package View;
 
 import Model.*;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.stage.Stage;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
+import java.io.IOException;
 
 /**
  * Main class of our program
@@ -30,15 +30,25 @@ public class Main extends Application {
     private Database db = Database.getDatabase();
 
     /**
-     * a singleton serializer object
+     * a singleton journal object that saves the changes of the database
      */
-    private ApplicationSerializer serializer = ApplicationSerializer.getSerializer();
+    private CatalogJournal journal = CatalogJournal.getJournal();
 
     /**
      * a singleton deserializer object
      */
     private ApplicationDeserializer deserializer = ApplicationDeserializer.getDeserializer();
 
+    /**
+     * a singleton viewAgent object
+     */
+    private ViewAgent viewAgent = ViewAgent.getViewAgent();
+
+    /**
+     * the number of photos that are added to the database in one pulse of the JavaFX thread while loading
+     */
+    private static final int LOAD_BATCH_SIZE = 5000;
+
     /**
      * run the application here
      *
@@ -54,49 +64,107 @@ public class Main extends Application {
         primaryStage.setTitle("Final Project");
         primaryStage.setScene(mainView.getScene());
 
-        deserializeApplication();
-
+        // the window is shown first and the catalog is loaded behind it
         primaryStage.show();
+        deserializeApplication();
     }
 
     /**
      * deserialize all the previous data and added to the current database if the database does nt exist
+     * The catalog is read on a background thread into a separate database object, then added to the current
+     * database on the JavaFX thread in batches, so the photos and tags show up while the rest is still loading.
+     * The controls that change the database are disabled until every batch is added
      */
     private void deserializeApplication() {
-        if (new File("Database.ser").exists()) {
-            Database oldDb = (Database) deserializer.deserialize("Database");
-            populateOldData(oldDb);
-        }
+        mainView.setLoading(true);
+        viewAgent.updateStatusMessage("Loading the photo catalog...");
+        Task<Database> reading = new Task<Database>() {
+            @Override
+            protected Database call() {
+                return deserializer.deserialize("Database");
+            }
+        };
+        reading.setOnSucceeded(event -> {
+            Database oldDb = reading.getValue();
+            if (oldDb != null)
+                loadBatch(oldDb, 0);
+            else
+                finishLoading();
+        });
+        reading.setOnFailed(event -> {
+            // the saved library cannot be read or kept aside, so nothing is journaled that could replace it
+            reading.getException().printStackTrace();
+            mainView.getLoadingProgress().setVisible(false);
+            viewAgent.updateStatusMessage("The photo catalog cannot be read, nothing can be changed");
+        });
+        Thread thread = new Thread(reading, "catalog loader");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     /**
-     * load all the previous database's data into the current database object
-     * including existing tags, previous photo objects and tag sets for each photo
+     * add a batch of photos of the old database to the current database
+     * the next batch is added in a later pulse of the JavaFX thread, so the GUI is drawn between the batches
      *
      * @param oldDb the old database
+     * @param from  the index of the first photo of this batch
      */
-    private void populateOldData(Database oldDb) {
-        List<Photo> oldPhoto = oldDb.getAllPhotos();
-        List<Tag> oldTags = oldDb.getCurrentExistingTags();
-        HashMap<Photo, List<HashSet<Tag>>> oldTagLogs = oldDb.getTagLogs();
-        for (Tag tag : oldTags) {
-            db.addCurrentExistingTag(tag);
+    private void loadBatch(Database oldDb, int from) {
+        int size = oldDb.getAllPhotos().size();
+        int to = Math.min(size, from + LOAD_BATCH_SIZE);
+        db.loadCatalog(oldDb, from, to);
+        mainView.getLoadingProgress().setProgress(size == 0 ? 1 : (double) to / size);
+        if (to < size)
+            Platform.runLater(() -> loadBatch(oldDb, to));
+        else
+            finishLoading();
+    }
+
+    /**
+     * start saving the changes of the database into the journal and the renames into the rename history,
+     * start watching the imported folders and enable the controls that change the database
+     * the journal is opened after the catalog is loaded, so the loaded photos are not journaled again
+     */
+    private void finishLoading() {
+        try {
+            // the snapshots of the database are taken on the JavaFX thread, which is the thread that changes it
+            journal.setDatabaseThread(Platform::runLater);
+            journal.open("Database");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        try {
+            RenameHistory.getRenameHistory().open(new File("renameHistory"));
+        } catch (IOException e) {
+            e.printStackTrace();
         }
-        for (Photo photo : oldPhoto) {
-            db.addPhoto(photo);
+        try {
+            DirectoryCache.getDirectoryCache().open(new File("directoryCache.bin"));
+        } catch (IOException e) {
+            e.printStackTrace();
         }
-        for (Photo photo : oldTagLogs.keySet()) {
-            List<HashSet<Tag>> oldTagSets = oldTagLogs.get(photo);
-            oldTagSets.remove(0);
-            db.getTagLog(photo).addAll(oldTagSets);
+        try {
+            // the changes of the watched folders are applied on the JavaFX thread, like every other change
+            FolderWatcher.getFolderWatcher().setDatabaseThread(Platform::runLater);
+            FolderWatcher.getFolderWatcher().open(new File("watchedFolders.txt"));
+        } catch (IOException e) {
+            e.printStackTrace();
         }
+        mainView.setLoading(false);
+        viewAgent.updateStatusMessage(db.getAllPhotos().size() + " photos loaded");
     }
 
     /**
-     * serialized all the database data(Photos, Tags) into Database.ser file before the application is closed
+     * write the rest of the journal, the name log, the rename history and the folder cache to the disk before
+     * the application is closed
+     * the changes were saved into the journal as they were made, so the catalog is not written again here
      */
     @Override
     public void stop() {
-        serializer.serialize(db, "Database");
+        FolderWatcher.getFolderWatcher().close();
+        journal.close();
+        DataLogger.getDataLogger().flush();
+        RenameHistory.getRenameHistory().close();
+        DirectoryCache.getDirectoryCache().close();
     }
 }
@@ -0,0 +1,85 @@
+package View;
+
+import Model.Photo;
+import Model.TagQueryResult;
+import javafx.collections.ObservableListBase;
+
+import java.util.List;
+
+/**
+ * a read-only list of the photos in a tag query result that can be shown in a list view
+ * The list view only asks for the photos that are visible, so the photos are looked up
+ * one page at a time instead of all at once
+ *
+ * @author Jianzhong You
+ * @version 2.0
+ * @since 2017-11-30
+ */
+class QueryResultList extends ObservableListBase<Photo> {
+
+    /**
+     * the number of photos that are looked up at a time
+     */
+    private static final int PAGE_SIZE = 100;
+    /**
+     * the query result that backs this list
+     */
+    private final TagQueryResult result;
+    /**
+     * the index of the first photo in the current page
+     */
+    private int pageStart;
+    /**
+     * the photos of the current page, null if no page is looked up yet
+     */
+    private List<Photo> page;
+
+    /**
+     * create a list of the photos in the query result
+     *
+     * @param result the query result
+     */
+    QueryResultList(TagQueryResult result) {
+        this.result = result;
+    }
+
+    @Override
+    public Photo get(int index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("index " + index + " of " + size());
+        if (page == null || index < pageStart || index >= pageStart + page.size()) {
+            pageStart = index / PAGE_SIZE * PAGE_SIZE;
+            page = result.getPage(pageStart, PAGE_SIZE);
+        }
+        return page.get(index - pageStart);
+    }
+
+    @Override
+    public int size() {
+        return result.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Photo && result.contains((Photo) o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return o instanceof Photo ? result.indexOf((Photo) o) : -1;
+    }
+
+    /**
+     * tell the list view that the photo is changed, so that only the cell of the photo is redrawn
+     *
+     * @param photo the changed photo
+     */
+    void photoChanged(Photo photo) {
+        int index = indexOf(photo);
+        if (index >= 0) {
+            beginChange();
+            nextUpdate(index);
+            endChange();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package View;
+
+import Model.Photo;
+import Model.RenameHistory;
+import Model.RenameRecord;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+import java.util.List;
+
+/**
+ * a window that pages through the rename history of one photo, newest first
+ * Only one page is read from the rename history at a time
+ *
+ * @author Shiyi Tao, Yuan Xu
+ * @version 2.0
+ * @since 2017-11-30
+ */
+public class RenameHistoryWindow {
+
+    /**
+     * the number of renames on a page
+     */
+    private static final int PAGE_SIZE = 50;
+
+    /**
+     * the photo whose renames are shown
+     */
+    private final Photo photo;
+    /**
+     * the number of newer renames before the shown page
+     */
+    private int skip;
+
+    /**
+     * GUI information
+     */
+    private final Stage stage;
+    private final ListView<RenameRecord> renames;
+    private final Label pageLabel;
+    private final Button newer;
+    private final Button older;
+
+    /**
+     * create the window of the rename history of a photo
+     *
+     * @param photo the photo whose renames are shown
+     */
+    private RenameHistoryWindow(Photo photo) {
+        this.photo = photo;
+
+        renames = new ListView<>();
+        renames.setPrefSize(560, 360);
+        pageLabel = new Label();
+        newer = new Button("Newer");
+        newer.setOnAction(event -> showPage(skip - PAGE_SIZE));
+        older = new Button("Older");
+        older.setOnAction(event -> showPage(skip + PAGE_SIZE));
+
+        HBox buttons = new HBox(10, newer, pageLabel, older);
+        buttons.setAlignment(Pos.CENTER);
+        VBox root = new VBox(10, new Label(photo.getNameWithExtension()), renames, buttons);
+        root.setPadding(new Insets(10));
+
+        stage = new Stage();
+        stage.initOwner(View.getView().getSourceWindow());
+        stage.setTitle("Name History");
+        stage.setScene(new Scene(root));
+    }
+
+    /**
+     * show the newest renames of a photo in a new window
+     *
+     * @param photo the photo whose renames are shown
+     */
+    public static void show(Photo photo) {
+        RenameHistoryWindow window = new RenameHistoryWindow(photo);
+        window.showPage(0);
+        window.stage.show();
+    }
+
+    /**
+     * read a page of renames from the rename history and show it
+     * one more rename than the page size is read to know if there is an older page
+     *
+     * @param skip the number of newer renames before the page
+     */
+    private void showPage(int skip) {
+        this.skip = Math.max(0, skip);
+        List<RenameRecord> page = RenameHistory.getRenameHistory().getHistory(photo.getId(), this.skip,
+                PAGE_SIZE + 1);
+        boolean hasOlder = page.size() > PAGE_SIZE;
+        if (hasOlder)
+            page = page.subList(0, PAGE_SIZE);
+        renames.setItems(FXCollections.observableArrayList(page));
+        int last = this.skip + page.size();
+        pageLabel.setText(page.isEmpty() ? "No renames" : "Renames " + (this.skip + 1) + " - " + last);
+        newer.setDisable(this.skip == 0);
+        older.setDisable(!hasOlder);
+    }
+}
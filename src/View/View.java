@@ -16,7 +16,7 @@ import javafx.scene.text.Text;
 import javafx.stage.Stage;
 import javafx.stage.Window;
 
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * GUI class
@@ -32,11 +32,16 @@ public class View {
      */
     private Scene scene;
     private Text statusMessage;
+    private ProgressBar loadingProgress;
     private HBox imageBox;
     private ImageView imageWindow;
     private TextField newTagTextField;
     private Window sourceWindow;
     private Photo currentActivePhoto;
+    /**
+     * if the catalog is still loading
+     */
+    private boolean loading;
 
     /**
      * Text information for the GUI and buttons
@@ -49,7 +54,7 @@ public class View {
     private ListView<Photo> imgInDirectory;
     private ListView<Photo> imgsFromTag;
     private ListView<Tag> availableTags;
-    private ListView<List<Tag>> oldTags;
+    private ListView<TagSet> oldTags;
 
     /**
      * Fields for all buttons
@@ -62,6 +67,7 @@ public class View {
     private Button moveFile;
     private Button openFolder;
     private Button addNewTag;
+    private Button cancelImport;
 
     /**
      * Static singleton view object
@@ -97,14 +103,68 @@ public class View {
     }
 
     /**
-     * get the List of tag from the listview
+     * get the list view of the old tag sets
      *
-     * @return a list of tag
+     * @return a list view of tag sets
      */
-    ListView<List<Tag>> getOldTags() {
+    ListView<TagSet> getOldTags() {
         return oldTags;
     }
 
+    /**
+     * get the progress bar that shows how much of the catalog is loaded or how much of an import is done
+     *
+     * @return the progress bar of loading the catalog and importing photos
+     */
+    public ProgressBar getLoadingProgress() {
+        return loadingProgress;
+    }
+
+    /**
+     * disable the controls that change the database and show the progress bar while the catalog is loading
+     * the changes are not journaled until the whole catalog is loaded, so photos cannot be imported, moved or
+     * tagged until then. The list views and the tag queries can be used on the photos that are loaded so far
+     *
+     * @param loading if the catalog is loading
+     */
+    void setLoading(boolean loading) {
+        this.loading = loading;
+        for (Button button : Arrays.asList(loadImages, moveFile, addNewTag, addTag, deleteTag, chooseOldTags)) {
+            button.setDisable(loading);
+        }
+        loadingProgress.setVisible(loading);
+    }
+
+    /**
+     * check if the catalog is still loading
+     *
+     * @return if the catalog is loading
+     */
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * show the progress bar and the cancel button while photos are imported
+     * only the import button is disabled, the rest of the GUI can be used during an import
+     *
+     * @param importing if photos are imported
+     */
+    public void setImporting(boolean importing) {
+        loadingProgress.setVisible(importing);
+        cancelImport.setVisible(importing);
+        loadImages.setDisable(importing);
+    }
+
+    /**
+     * return the "cancelImport" button
+     *
+     * @return the button that cancels the running import
+     */
+    public Button getCancelImport() {
+        return cancelImport;
+    }
+
     /**
      * get the current Active Photo object from the list
      *
@@ -349,6 +409,19 @@ public class View {
         statusMessage.setLayoutX(210);
         statusMessage.setLayoutY(365);
 
+        loadingProgress = new ProgressBar();
+        loadingProgress.setLayoutX(560);
+        loadingProgress.setLayoutY(354);
+        loadingProgress.setPrefSize(140, 14);
+        loadingProgress.setVisible(false);
+
+        cancelImport = new Button("Cancel");
+        cancelImport.setLayoutX(710);
+        cancelImport.setLayoutY(350);
+        cancelImport.setPrefSize(70, 20);
+        cancelImport.setFont(Font.font(10));
+        cancelImport.setVisible(false);
+
         HBox tagBox = new HBox();
         tagBox.setAlignment(Pos.TOP_CENTER);
         tagBox.setLayoutX(210);
@@ -393,7 +466,8 @@ public class View {
         openFolder.setFont(Font.font(fontSize));
         addNewTag.setFont(Font.font(fontSize));
         b2.getChildren().addAll(addNewTag, log, moveFile, openFolder, loadImages);
-        pane.getChildren().addAll(vbox, urlText, imageBox, b1, statusMessage, tagBox, b2);
+        pane.getChildren().addAll(vbox, urlText, imageBox, b1, statusMessage, loadingProgress, cancelImport, tagBox,
+                b2);
         int height = 600;
         int width = 800;
         scene = new Scene(pane, width, height);
@@ -433,7 +507,7 @@ public class View {
      *
      * @return the selected old tag set
      */
-    public List<Tag> getSelectedOldTagSet() {
+    public TagSet getSelectedOldTagSet() {
         return getOldTags().getSelectionModel().getSelectedItem();
     }
 
@@ -453,6 +527,7 @@ public class View {
         loadImages.setOnAction(fileController);
         openFolder.setOnAction(fileController);
         moveFile.setOnAction(fileController);
+        cancelImport.setOnAction(fileController);
 
         chooseOldTags.setOnAction(tagController);
         addNewTag.setOnAction(tagController);
@@ -1,8 +1,12 @@
 package View;
 
 import Model.Database;
+import Model.DatabaseChange;
 import Model.Photo;
 import Model.Tag;
+import Model.TagQuery;
+import Model.TagQueryResult;
+import Model.TagSet;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.scene.control.ListView;
@@ -12,6 +16,7 @@ import java.util.*;
 
 /**
  * A agent class that responsible to update the GUI
+ * The database sends what is changed, so only the affected list cells are updated instead of every list view
  *
  * @author Jianzhong You, Yuan Xu, Shiyi Tao
  * @version 2.0
@@ -91,31 +96,17 @@ public class ViewAgent implements Observer {
 
     /**
      * refresh the photo list views from the selected tags
+     * the list view shows the photos that have any of the selected tags
      */
     public void refreshPhotoListViewByTag() {
 
         // get the list of selected tags from the list view
         List<Tag> selectedTags = new ArrayList<>(view.getSelectedTags());
 
-        // get all the items from the photo list view
-        ObservableList<Photo> photoListView = view.getImgsFromTag().getItems();
-
-        List<Photo> resultImgs = new ArrayList<>();
         if (selectedTags.size() > 0) {
-            for (Tag tag : selectedTags) {
-                // get all photos that have this tag
-                if (tag != null) {
-                    List<Photo> allPhotos = tag.getAllPhotos();
-                    // for each photo, if the photo is not in the list view: add it, else: ignore
-                    for (Photo photo : allPhotos) {
-                        if (!resultImgs.contains(photo)) {
-                            resultImgs.add(photo);
-                        }
-                    }
-                }
-            }
-            photoListView.clear();
-            photoListView.addAll(resultImgs);
+            // the photos are only looked up when the list view shows them
+            TagQueryResult result = TagQuery.anyOf(selectedTags).evaluate(db);
+            view.getImgsFromTag().setItems(new QueryResultList(result));
         }
     }
 
@@ -126,18 +117,16 @@ public class ViewAgent implements Observer {
         List<Tag> updatedExistingTags = db.getCurrentExistingTags();
         ObservableList<Tag> availableTags = view.getAvailableTags().getItems();
         // perform delete
-        for (int i = 0; i < availableTags.size(); i++) {
-            Tag tag = availableTags.get(i);
-            if (!updatedExistingTags.contains(tag)) {
-                availableTags.remove(i);
-            }
-        }
-        // perform add
+        availableTags.removeIf(tag -> !db.containTag(tag));
+        // perform add, the shown tags are kept in a hash set so that a large catalog is added in one pass
+        Set<Tag> shownTags = new HashSet<>(availableTags);
+        List<Tag> newTags = new ArrayList<>();
         for (Tag tag : updatedExistingTags) {
-            if (!availableTags.contains(tag)) {
-                availableTags.add(tag);
+            if (shownTags.add(tag)) {
+                newTags.add(tag);
             }
         }
+        availableTags.addAll(newTags);
     }
 
     /**
@@ -145,15 +134,11 @@ public class ViewAgent implements Observer {
      */
     public void refreshOldTagListView() {
         Photo photo = view.getCurrentActivePhoto();
-        List<HashSet<Tag>> tagLog = db.getTagLog(photo);
+        List<TagSet> tagLog = db.getTagLog(photo);
         if (tagLog != null) {
-            List<List<Tag>> result = new ArrayList<>();
-            for (HashSet<Tag> tagSet : tagLog) {
-                List<Tag> tagList = new ArrayList<>(tagSet);
-                result.add(tagList);
-            }
+            // the tag sets are shared and immutable, so the list view can show them directly
             view.getOldTags().setItems(null);
-            view.getOldTags().setItems(FXCollections.observableArrayList(result));
+            view.getOldTags().setItems(FXCollections.observableArrayList(tagLog));
         }
     }
 
@@ -168,8 +153,134 @@ public class ViewAgent implements Observer {
         updateCurrentPhotoPath();
     }
 
+    /**
+     * check if a new or renamed photo joins or leaves the photo list view of the selected tags
+     *
+     * @param photo the new or renamed photo
+     * @return if the photos of the selected tags need to be looked up again
+     */
+    private boolean isTagQueryAffected(Photo photo) {
+        List<Tag> selectedTags = view.getSelectedTags();
+        if (selectedTags.isEmpty())
+            return false;
+        boolean matches = false;
+        for (Tag tag : selectedTags) {
+            matches |= photo.getCurrentTags().containsTagId(tag.getId());
+        }
+        return matches != view.getImgsFromTag().getItems().contains(photo);
+    }
+
+    /**
+     * redraw only the cell of the photo in the list view after the photo is renamed
+     *
+     * @param listView a photo list view
+     * @param photo    the renamed photo
+     */
+    private void updatePhotoCell(ListView<Photo> listView, Photo photo) {
+        ObservableList<Photo> photos = listView.getItems();
+        if (photos instanceof QueryResultList) {
+            ((QueryResultList) photos).photoChanged(photo);
+            return;
+        }
+        int index = photos.indexOf(photo);
+        if (index >= 0) {
+            int selectedIndex = listView.getSelectionModel().getSelectedIndex();
+            photos.set(index, photo);
+            if (selectedIndex == index)
+                listView.getSelectionModel().select(index);
+        }
+    }
+
+    /**
+     * update only the parts of the GUI that are affected by the changes of the database
+     * the photos of the selected tags are looked up at most once for all the changes, and the removed photos
+     * and tags are taken out of the list views in one pass each
+     *
+     * @param changes the changes of the database in the order they were made
+     */
+    private void applyChanges(List<DatabaseChange> changes) {
+        boolean tagQueryAffected = false;
+        Set<Photo> removedPhotos = new HashSet<>();
+        ObservableList<Tag> availableTags = view.getAvailableTags().getItems();
+        // the shown tags are only copied into a set if a tag is added or removed
+        Set<Tag> shownTags = null;
+        Set<Tag> removedTags = new HashSet<>();
+        for (DatabaseChange change : changes) {
+            Photo photo = change.getPhoto();
+            switch (change.getType()) {
+                case PHOTO_ADDED:
+                    tagQueryAffected |= isTagQueryAffected(photo);
+                    break;
+                case PHOTO_RENAMED:
+                    updatePhotoCell(view.getImgInDirectory(), photo);
+                    if (isTagQueryAffected(photo))
+                        tagQueryAffected = true;
+                    else
+                        updatePhotoCell(view.getImgsFromTag(), photo);
+                    if (photo.equals(view.getCurrentActivePhoto()))
+                        updateCurrentPhotoPath();
+                    break;
+                case PHOTO_REMOVED:
+                    removedPhotos.add(photo);
+                    tagQueryAffected |= view.getImgsFromTag().getItems().contains(photo);
+                    if (photo.equals(view.getCurrentActivePhoto())) {
+                        // the file of the shown photo is gone
+                        view.setCurrentActivePhoto(null);
+                        view.displaySelectedImage(null);
+                        view.getOldTags().getItems().clear();
+                    }
+                    break;
+                case TAG_ADDED:
+                    if (shownTags == null)
+                        shownTags = new HashSet<>(availableTags);
+                    // a tag that is removed and added again in the same changes keeps its place
+                    if (shownTags.add(change.getTag()) && !removedTags.remove(change.getTag()))
+                        availableTags.add(change.getTag());
+                    break;
+                case TAG_REMOVED:
+                    if (shownTags == null)
+                        shownTags = new HashSet<>(availableTags);
+                    if (shownTags.remove(change.getTag()))
+                        removedTags.add(change.getTag());
+                    break;
+                case TAG_SET_LOGGED:
+                    if (photo.equals(view.getCurrentActivePhoto()))
+                        view.getOldTags().getItems().add(change.getTagSet());
+                    break;
+                case CATALOG_LOADED:
+                    // the new tags come as TAG_ADDED changes, the loaded photos may have the selected tags and
+                    // may add tag sets to the log of the shown photo
+                    tagQueryAffected |= !view.getSelectedTags().isEmpty();
+                    refreshOldTagListView();
+                    break;
+                default:
+                    // the database is cleared, so everything is refreshed once
+                    refresh();
+                    return;
+            }
+        }
+        if (!removedPhotos.isEmpty())
+            view.getImgInDirectory().getItems().removeIf(removedPhotos::contains);
+        if (!removedTags.isEmpty())
+            availableTags.removeIf(removedTags::contains);
+        if (tagQueryAffected)
+            refreshPhotoListViewByTag();
+    }
+
     @Override
     public void update(Observable o, Object arg) {
-        refresh();
+        if (arg instanceof DatabaseChange) {
+            applyChanges(Collections.singletonList((DatabaseChange) arg));
+        } else if (arg instanceof List) {
+            // a committed batch sends all the changes of the database at once
+            List<DatabaseChange> changes = new ArrayList<>();
+            for (Object item : (List) arg) {
+                if (item instanceof DatabaseChange)
+                    changes.add((DatabaseChange) item);
+            }
+            applyChanges(changes);
+        } else {
+            refresh();
+        }
     }
 }